@@ -0,0 +1,68 @@
+package snake.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.Arena;
+import snake.model.Direction;
+import snake.model.GameID;
+import snake.model.LevelTemplate;
+
+/**
+ * Measures one tick of an arena as the number of snakes grows. The board
+ * grows with the number of snakes, giving each about 256 cells, and dead
+ * snakes respawn after every tick so the number of snakes stays constant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArenaBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int snakes;
+
+    private Arena arena;
+    /** Precomputed turns, mostly null (straight on), cycled through tick by tick. */
+    private Direction[][] turns;
+    private int turn;
+
+    @Setup
+    public void setup() {
+        int boardSize = 16 * (int) Math.ceil(Math.sqrt(snakes)) + 2;
+        LevelTemplate template = new LevelTemplate(RingLevel.rows(boardSize), new GameID("ARENA", snakes), 1);
+        arena = new Arena(template, snakes, snakes, 42L);
+
+        SplittableRandom random = new SplittableRandom(7);
+        Direction[] all = Direction.values();
+        turns = new Direction[64][snakes];
+        for (Direction[] tick : turns) {
+            for (int i = 0; i < snakes; i++) {
+                tick[i] = (random.nextInt(5) == 0) ? all[random.nextInt(all.length)] : null;
+            }
+        }
+    }
+
+    @Benchmark
+    public int tick() {
+        int alive = arena.step(turns[turn++ & (turns.length - 1)]);
+        if (alive < snakes) {
+            for (int i = 0; i < snakes; i++) {
+                arena.respawn(i);
+            }
+        }
+        return alive;
+    }
+}
@@ -0,0 +1,63 @@
+package snake.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.Game;
+import snake.res.SpriteAtlas;
+
+/**
+ * Measures the startup cost of loading the sprites, on its own and
+ * together with creating the {@link Game}, which reads the levels and
+ * opens the database.
+ * <p>
+ * Every measurement runs once in a fresh JVM, so it includes loading the
+ * image decoder classes, as a real start of the game does.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class AssetLoadBenchmark {
+
+    @Benchmark
+    public SpriteAtlas atlas() throws IOException {
+        return SpriteAtlas.load(SpriteAtlas.DEFAULT_IMAGE, SpriteAtlas.DEFAULT_INDEX);
+    }
+
+    @Benchmark
+    public SpriteAtlas startupSequential() throws IOException {
+        SpriteAtlas atlas = SpriteAtlas.load(SpriteAtlas.DEFAULT_IMAGE, SpriteAtlas.DEFAULT_INDEX);
+        new Game();
+        return atlas;
+    }
+
+    /**
+     * Decodes the sprites on another thread while the game is created, as
+     * {@link SpriteAtlas#preload()} does at startup.
+     */
+    @Benchmark
+    public SpriteAtlas startupOverlapped() {
+        CompletableFuture<SpriteAtlas> atlas = CompletableFuture.supplyAsync(() -> {
+            try {
+                return SpriteAtlas.load(SpriteAtlas.DEFAULT_IMAGE, SpriteAtlas.DEFAULT_INDEX);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        new Game();
+        return atlas.join();
+    }
+}
@@ -0,0 +1,97 @@
+package snake.bench;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.Game;
+import snake.view.Board;
+
+/**
+ * Measures painting the board into an offscreen image, with the snake
+ * moving one cell between frames as in a running game: the whole board,
+ * as after a resize, and only the cells the tick changed, as while playing.
+ * <p>
+ * The image is the size of the board's view, at most
+ * {@value Board#MAX_VIEW_WIDTH} by {@value Board#MAX_VIEW_HEIGHT} pixels,
+ * so a 500-cell board at full scale shows only the part around the head;
+ * changed cells outside the view are not painted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    @Param({"20", "100", "500"})
+    public int boardSize;
+
+    @Param({"4", "64", "1024"})
+    public int snakeLength;
+
+    @Param({"0.25", "1.0", "2.0"})
+    public double scale;
+
+    private RingLevel ring;
+    private Game game;
+    private Board board;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setup() throws IOException {
+        ring = new RingLevel(boardSize, snakeLength);
+        game = new Game(List.of(ring.template));
+        game.loadGame(ring.template.gameID, 42L, ring.state);
+        board = new Board(game);
+        board.setScale(scale);
+        image = new BufferedImage(board.getWidth(), board.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        graphics.setClip(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        game.step(ring.next());
+        board.paint(graphics);
+        return image;
+    }
+
+    /**
+     * Paints each changed cell under its own clip, as
+     * {@link Board#repaintChanged()} does while a game runs.
+     */
+    @Benchmark
+    public BufferedImage paintChanged() {
+        game.step(ring.next());
+        for (int i = 0; i < game.getChangedCount(); i++) {
+            Rectangle bounds = board.getCellBounds(game.getChangedCell(i), game.getLevelCols());
+            if (bounds == null) continue;
+            graphics.setClip(bounds);
+            board.paint(graphics);
+        }
+        graphics.setClip(0, 0, image.getWidth(), image.getHeight());
+        return image;
+    }
+}
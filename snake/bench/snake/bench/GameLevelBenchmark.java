@@ -0,0 +1,68 @@
+package snake.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.GameLevel;
+
+/**
+ * Measures a game tick and setting up a session on a parsed level.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameLevelBenchmark {
+
+    @Param({"20", "100", "500"})
+    public int boardSize;
+
+    /** The requested snake length; clamped to the {@link RingLevel} of the board. */
+    @Param({"2", "64", "1024", "10000"})
+    public int snakeLength;
+
+    private RingLevel ring;
+    private GameLevel level;
+    private long seed = 0;
+
+    @Setup
+    public void setup() {
+        ring = new RingLevel(boardSize, snakeLength);
+        level = ring.newLevel();
+    }
+
+    /**
+     * One tick of a snake circling the board without eating.
+     */
+    @Benchmark
+    public boolean moveSnake() {
+        return level.moveSnake(ring.next());
+    }
+
+    /**
+     * Starting a fresh session on a shared level, as on every level load.
+     */
+    @Benchmark
+    public GameLevel newSession() {
+        return new GameLevel(ring.template, seed++);
+    }
+
+    /**
+     * Restoring a session from a captured state, as when seeking a replay.
+     */
+    @Benchmark
+    public GameLevel restoreSession() {
+        return new GameLevel(ring.template, seed++, ring.state);
+    }
+}
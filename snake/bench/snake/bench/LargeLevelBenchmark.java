@@ -0,0 +1,134 @@
+package snake.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.Direction;
+import snake.model.Game;
+import snake.model.GameID;
+import snake.model.LevelTemplate;
+import snake.view.Board;
+
+/**
+ * Measures how the cost of a tick, of drawing the view and of loading a
+ * level grows with the size of an open walled level. A tick and a frame
+ * should cost the same on a 10,000 by 10,000 level as on a small one, and
+ * loading or restarting a level allocates a few dozen bytes per thousand
+ * cells.
+ * <p>
+ * Run with {@code -prof gc} to see the memory a level takes in
+ * {@code gc.alloc.rate.norm} of {@link #loadLevel()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@State(Scope.Thread)
+public class LargeLevelBenchmark {
+
+    /** The side of the square the snake runs around, in cells. */
+    private static final int LOOP_SIDE = 8;
+
+    @Param({"100", "1000", "10000"})
+    public int levelSize;
+
+    private LevelTemplate template;
+    private Game game;
+    private Board board;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int move = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        template = new LevelTemplate(new GameID("BIG", 1), levelSize, levelSize, 1);
+        game = new Game(List.of(template));
+        game.loadGame(template.gameID, 1);
+        board = new Board(game);
+        board.setScale(1.0);
+        image = new BufferedImage(board.getWidth(), board.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * Returns the next move of a square loop up and to the left of the
+     * start, away from the food, so the snake never eats or dies.
+     */
+    private Direction nextMove() {
+        int side = (move++ / LOOP_SIDE) % 4;
+        return switch (side) {
+            case 0 -> Direction.UP;
+            case 1 -> Direction.LEFT;
+            case 2 -> Direction.DOWN;
+            default -> Direction.RIGHT;
+        };
+    }
+
+    /**
+     * Moves the snake one cell and publishes the frame, as the game loop
+     * does every tick.
+     */
+    @Benchmark
+    public boolean step() {
+        return game.step(nextMove());
+    }
+
+    /**
+     * Moves the snake and paints the whole view around it.
+     */
+    @Benchmark
+    public BufferedImage paintView() {
+        game.step(nextMove());
+        board.paint(graphics);
+        return image;
+    }
+
+    /**
+     * Creates a level from scratch: the template and a game loading it,
+     * as choosing the level from the menu does.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Game loadLevel() {
+        LevelTemplate big = new LevelTemplate(new GameID("BIG", 1), levelSize, levelSize, 1);
+        Game loaded = new Game(List.of(big));
+        loaded.loadGame(big.gameID, 1);
+        return loaded;
+    }
+
+    /**
+     * Restarts the level, as playing it again after a game over does.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Game restartLevel() {
+        game.loadGame(template.gameID, 1);
+        return game;
+    }
+}
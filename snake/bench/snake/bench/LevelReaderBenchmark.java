@@ -0,0 +1,58 @@
+package snake.bench;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.LevelReader;
+import snake.model.LevelTemplate;
+
+/**
+ * Measures parsing generated level files, as done for the shipped levels
+ * when the game starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LevelReaderBenchmark {
+
+    @Param({"20", "100", "500"})
+    public int boardSize;
+
+    @Param({"1", "16"})
+    public int levelCount;
+
+    private byte[] levels;
+
+    @Setup
+    public void setup() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= levelCount; i++) {
+            text.append("; BENCH ").append(i).append("\n\n");
+            for (String row : RingLevel.rows(boardSize)) {
+                text.append(row).append('\n');
+            }
+            text.append('\n');
+        }
+        levels = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ArrayList<LevelTemplate> readLevels() {
+        return LevelReader.readLevels(new ByteArrayInputStream(levels), 1);
+    }
+}
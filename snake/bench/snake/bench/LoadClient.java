@@ -0,0 +1,116 @@
+package snake.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import snake.metrics.LatencyHistogram;
+
+/**
+ * Opens many sessions against a {@link snake.server.GameServer} on
+ * loopback, each on its own virtual thread, plays random games on all of
+ * them and reports how regularly ticks arrive and the server's own view of
+ * its load.
+ * <p>
+ * Run with
+ * {@code java -cp build/classes:build/bench/classes snake.bench.LoadClient [sessions] [seconds] [port] [tick ms]}
+ * while a server is running. Every session starts a new game as soon as
+ * the previous one ends, so the number of live games stays constant.
+ */
+public class LoadClient {
+
+    public static void main(String[] args) throws Exception {
+        int sessions = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 30;
+        int port = (args.length > 2) ? Integer.parseInt(args[2]) : 7777;
+        long tickNanos = ((args.length > 3) ? Integer.parseInt(args[3]) : 100) * 1_000_000L;
+
+        LatencyHistogram gaps = new LatencyHistogram("tickGap");
+        AtomicLong ticks = new AtomicLong();
+        AtomicInteger games = new AtomicInteger();
+        AtomicInteger connected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(sessions);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+
+        for (int i = 0; i < sessions; i++) {
+            final long seed = i;
+            Thread.ofVirtual().start(() -> {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                    socket.setTcpNoDelay(true);
+                    connected.incrementAndGet();
+                    play(socket, seed, end, gaps, ticks, games);
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        // Ask while every session is still connected
+        Thread.sleep(Math.max(0, (end - System.nanoTime()) / 1_000_000 - 500));
+        String stats = query(port, "STATS");
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.println("sessions=" + connected.get() + " failed=" + failed.get()
+                + " games=" + games.get() + " ticks=" + ticks.get()
+                + " ticksPerSecond=" + Math.round(ticks.get() / elapsed));
+        System.out.printf("tick period %.1f ms, gap between ticks: %s%n", tickNanos / 1e6, gaps);
+        System.out.println(stats);
+    }
+
+    /**
+     * Plays games until the deadline, turning at random every few ticks.
+     */
+    private static void play(Socket socket, long seed, long end, LatencyHistogram gaps,
+            AtomicLong ticks, AtomicInteger games) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        OutputStream out = socket.getOutputStream();
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        byte[] play = "PLAY EASY 1\n".getBytes(StandardCharsets.US_ASCII);
+        byte[][] turns = new byte[4][];
+        String[] names = {"U", "D", "L", "R"};
+        for (int i = 0; i < turns.length; i++) {
+            turns[i] = (names[i] + "\n").getBytes(StandardCharsets.US_ASCII);
+        }
+
+        out.write(play);
+        long last = 0;
+        String line;
+        while (System.nanoTime() < end && (line = in.readLine()) != null) {
+            if (line.startsWith("T ")) {
+                long now = System.nanoTime();
+                if (last != 0) gaps.record(now - last);
+                last = now;
+                ticks.incrementAndGet();
+                if (random.nextInt(4) == 0) {
+                    out.write(turns[random.nextInt(4)]);
+                }
+            } else if (line.startsWith("END")) {
+                games.incrementAndGet();
+                last = 0;
+                out.write(play);
+            }
+        }
+        out.write("QUIT\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Sends one command on a fresh connection and returns the reply.
+     */
+    private static String query(int port, String command) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.getOutputStream().write((command + "\n").getBytes(StandardCharsets.US_ASCII));
+            return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+        }
+    }
+}
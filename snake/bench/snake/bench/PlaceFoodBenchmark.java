@@ -0,0 +1,98 @@
+package snake.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.Direction;
+import snake.model.GameID;
+import snake.model.GameLevel;
+import snake.model.LevelState;
+import snake.model.LevelTemplate;
+
+/**
+ * Measures eating the food on a nearly full board, which places new food
+ * among the few cells the snake does not cover.
+ * <p>
+ * The snake winds through the board row by row with the food right in front
+ * of its head. A move can eat that food only once, so each iteration first
+ * restores {@value #LEVELS} copies of the level and then times one move on
+ * each of them in a single call, which keeps the restoring and JMH's own
+ * timing out of a result of a few hundred nanoseconds. On large boards the
+ * result still includes cache misses on the freshly restored levels, which
+ * a long-running game would not see.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 100)
+@Measurement(iterations = 100)
+@Fork(1)
+@State(Scope.Thread)
+public class PlaceFoodBenchmark {
+
+    /** The number of levels eaten in by one call. */
+    private static final int LEVELS = 128;
+
+    @Param({"20", "100", "500"})
+    public int boardSize;
+
+    /** The number of cells left free besides the food being eaten. */
+    @Param({"1", "16", "256"})
+    public int freeCells;
+
+    private LevelTemplate template;
+    private LevelState state;
+    private Direction direction;
+    private final GameLevel[] levels = new GameLevel[LEVELS];
+
+    @Setup(Level.Trial)
+    public void setupBoard() {
+        template = new LevelTemplate(RingLevel.rows(boardSize), new GameID("BENCH", boardSize), 1);
+        int inner = boardSize - 2;
+        int[] path = new int[inner * inner];
+        for (int y = 0; y < inner; y++) {
+            for (int x = 0; x < inner; x++) {
+                int col = (y % 2 == 0) ? x : inner - 1 - x;
+                path[y * inner + x] = (y + 1) * boardSize + col + 1;
+            }
+        }
+
+        int head = Math.max(1, path.length - Math.min(freeCells, path.length - 3) - 2);
+        int[] body = new int[head + 1];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = path[head - i];
+        }
+        int foodCell = path[head + 1];
+        int cols = boardSize;
+        direction = Direction.of(foodCell % cols - path[head] % cols, foodCell / cols - path[head] / cols);
+        Direction heading = Direction.of(path[head] % cols - path[head - 1] % cols, path[head] / cols - path[head - 1] / cols);
+        state = new LevelState(0, 1, false, 42L, heading, body, new int[] {foodCell});
+    }
+
+    @Setup(Level.Iteration)
+    public void setupLevels() {
+        for (int i = 0; i < LEVELS; i++) {
+            levels[i] = new GameLevel(template, 42L + i, state);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LEVELS)
+    public int eat() {
+        int moved = 0;
+        for (GameLevel level : levels) {
+            if (level.moveSnake(direction)) moved++;
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,82 @@
+package snake.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.Direction;
+import snake.model.GameLevel;
+import snake.persistence.Replay;
+import snake.persistence.ReplayWriter;
+
+/**
+ * Measures seeking to a random tick of a recorded game, which should not
+ * depend on how long the recording is.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    @Param({"100"})
+    public int boardSize;
+
+    @Param({"64"})
+    public int snakeLength;
+
+    @Param({"1000", "10000", "100000"})
+    public int ticks;
+
+    private RingLevel ring;
+    private Path file;
+    private Replay replay;
+    private int[] targets;
+    private int target;
+
+    @Setup
+    public void setup() throws IOException {
+        ring = new RingLevel(boardSize, snakeLength);
+        GameLevel level = ring.newLevel();
+        file = Files.createTempFile("snake-bench", ".replay");
+        try (ReplayWriter writer = new ReplayWriter(file, level.gameID, level.getSeed())) {
+            for (int i = 0; i < ticks; i++) {
+                Direction d = ring.next();
+                level.moveSnake(d);
+                writer.record(d, level);
+            }
+        }
+        replay = Replay.read(file);
+
+        targets = new int[1024];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = random.nextInt(ticks + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public GameLevel seek() {
+        return replay.seek(ring.template, targets[target++ & (targets.length - 1)]);
+    }
+}
@@ -0,0 +1,102 @@
+package snake.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.Direction;
+import snake.model.GameLevel;
+import snake.model.LevelItem;
+import snake.model.LevelReader;
+import snake.model.LevelTemplate;
+import snake.model.Position;
+import snake.persistence.Replay;
+import snake.persistence.ReplayWriter;
+import snake.view.ReplayRenderer;
+
+/**
+ * Measures rendering a recorded game on the first level into PNG files
+ * with a single encoder thread, so the time per operation divided by
+ * {@link #TICKS} gives the time per frame on one core. Writes to a
+ * temporary directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ReplayRenderBenchmark {
+    /** The number of ticks recorded, and rendered by every operation. */
+    static final int TICKS = 500;
+
+    @Param({"16", "32"})
+    public int tileSize;
+
+    /** The number of frames along each side of an image. */
+    @Param({"1", "8"})
+    public int sheetSide;
+
+    private LevelTemplate template;
+    private Path file;
+    private Path dir;
+    private Replay replay;
+    private ReplayRenderer renderer;
+
+    @Setup
+    public void setup() throws IOException {
+        template = LevelReader.readDefaultLevels(1).get(0);
+        GameLevel level = new GameLevel(template, 42L);
+        file = Files.createTempFile("snake-bench", ".replay");
+        SplittableRandom random = new SplittableRandom(5);
+        Direction d = Direction.RIGHT;
+        try (ReplayWriter writer = new ReplayWriter(file, level.gameID, level.getSeed())) {
+            // Wander at random through free cells until the recording is long enough
+            for (int i = 0; i < TICKS && !level.isGameEnded(); i++) {
+                ArrayList<Direction> open = new ArrayList<>();
+                for (Direction c : Direction.values()) {
+                    Position p = new Position(level.snake.getHeadX() + c.x, level.snake.getHeadY() + c.y);
+                    if (level.isFree(p) || level.getItem(p.y, p.x) == LevelItem.FOOD) open.add(c);
+                }
+                if (open.isEmpty()) break;
+                if (!open.contains(d) || random.nextInt(6) == 0) d = open.get(random.nextInt(open.size()));
+                level.moveSnake(d);
+                writer.record(d, level);
+            }
+        }
+        replay = Replay.read(file);
+        dir = Files.createTempDirectory("snake-bench-frames");
+        renderer = new ReplayRenderer(tileSize, sheetSide, sheetSide, 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public int render() throws IOException {
+        return renderer.render(replay, template, dir, "bench");
+    }
+}
@@ -0,0 +1,122 @@
+package snake.bench;
+
+import java.util.ArrayList;
+import snake.model.Direction;
+import snake.model.GameID;
+import snake.model.GameLevel;
+import snake.model.LevelState;
+import snake.model.LevelTemplate;
+
+/**
+ * A square walled level whose snake lies along a ring: a closed path that
+ * winds through the rows inside the walls and comes back up the first
+ * column, covering nearly every cell. Following {@link #next()} the snake
+ * moves around the ring forever without colliding, and with no food on the
+ * board it never grows, so benchmarks can step it indefinitely at a fixed
+ * length. A board of size n holds a snake of up to about (n - 2)^2 cells.
+ */
+final class RingLevel {
+    /** The parsed level. */
+    final LevelTemplate template;
+    /** The snake on the ring, with no food on the board. */
+    final LevelState state;
+    /** The length of the snake, clamped to fit on the ring. */
+    final int snakeLength;
+    private final int[] ring;
+    private final int cols;
+    private int head;
+
+    /**
+     * Builds the level.
+     *
+     * @param boardSize the number of rows and columns, walls included
+     * @param snakeLength the requested snake length; clamped to the ring length
+     */
+    RingLevel(int boardSize, int snakeLength) {
+        template = new LevelTemplate(rows(boardSize), new GameID("BENCH", boardSize), 1);
+        cols = boardSize;
+        ring = ring(boardSize);
+        this.snakeLength = Math.max(2, Math.min(snakeLength, ring.length - 1));
+        head = this.snakeLength - 1;
+
+        int[] body = new int[this.snakeLength];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = ring[head - i];
+        }
+        state = new LevelState(0, 1, false, 42L, direction(ring[head - 1], ring[head]), body, new int[0]);
+    }
+
+    /**
+     * Creates a session on this level in its starting state.
+     *
+     * @return a new level
+     */
+    GameLevel newLevel() {
+        head = snakeLength - 1;
+        return new GameLevel(template, 42L, state);
+    }
+
+    /**
+     * Returns the direction that keeps the snake on the ring, and advances.
+     *
+     * @return the direction of the next move
+     */
+    Direction next() {
+        int from = ring[head];
+        head = (head + 1) % ring.length;
+        return direction(from, ring[head]);
+    }
+
+    /**
+     * Returns the text rows of a walled square level of the given size.
+     *
+     * @param boardSize the number of rows and columns, walls included
+     * @return the level rows in {@code levels.txt} format
+     */
+    static ArrayList<String> rows(int boardSize) {
+        ArrayList<String> rows = new ArrayList<>();
+        for (int y = 0; y < boardSize; y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x < boardSize; x++) {
+                boolean wall = y == 0 || x == 0 || y == boardSize - 1 || x == boardSize - 1;
+                row.append(wall ? '#' : (x == 2 && y == 2) ? '@' : ' ');
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    private Direction direction(int from, int to) {
+        return Direction.of(to % cols - from % cols, to / cols - from / cols);
+    }
+
+    /**
+     * Returns the cells of the ring in order: the first row inside the
+     * walls left to right, the next rows back and forth without their first
+     * column, then that column bottom to top. An even number of rows is
+     * used, so the winding part ends next to the first column; with an odd
+     * number the last row is left out.
+     */
+    private static int[] ring(int boardSize) {
+        int width = boardSize - 2;
+        int height = (boardSize - 2) & ~1;
+        int[] cells = new int[width * height];
+        int n = 0;
+        for (int x = 0; x < width; x++) cells[n++] = cell(boardSize, x, 0);
+        for (int y = 1; y < height; y++) {
+            for (int i = 1; i < width; i++) {
+                cells[n++] = cell(boardSize, (y % 2 == 1) ? width - i : i, y);
+            }
+        }
+        for (int y = height - 1; y > 0; y--) cells[n++] = cell(boardSize, 0, y);
+        return cells;
+    }
+
+    /**
+     * Returns the cell index of a position counted from the first cell
+     * inside the walls.
+     */
+    private static int cell(int boardSize, int x, int y) {
+        return (y + 1) * boardSize + x + 1;
+    }
+}
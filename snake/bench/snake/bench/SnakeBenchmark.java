@@ -0,0 +1,66 @@
+package snake.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snake.model.LevelState;
+import snake.model.Snake;
+
+/**
+ * Measures moving a snake and testing cells against its body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnakeBenchmark {
+
+    @Param({"20", "100", "500"})
+    public int boardSize;
+
+    /** The requested snake length; clamped to the {@link RingLevel} of the board. */
+    @Param({"2", "64", "1024", "10000"})
+    public int snakeLength;
+
+    private RingLevel ring;
+    private Snake snake;
+    private int[] probes;
+    private int probe;
+
+    @Setup
+    public void setup() {
+        ring = new RingLevel(boardSize, snakeLength);
+        LevelState state = ring.state;
+        snake = new Snake(state.getBody(), state.direction, boardSize, boardSize);
+
+        // Cells spread over the whole board, so hits and misses both occur
+        probes = new int[1024];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = random.nextInt(boardSize * boardSize);
+        }
+    }
+
+    @Benchmark
+    public int move() {
+        snake.move(ring.next(), false);
+        return snake.getHeadCell();
+    }
+
+    @Benchmark
+    public boolean checkCollision() {
+        return snake.checkCollision(probes[probe++ & (probes.length - 1)]);
+    }
+}
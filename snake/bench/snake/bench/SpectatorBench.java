@@ -0,0 +1,173 @@
+package snake.bench;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import snake.model.Direction;
+import snake.model.GameLevel;
+import snake.model.LevelItem;
+import snake.model.LevelReader;
+import snake.model.LevelTemplate;
+import snake.model.Snake;
+import snake.server.SpectatorFeed;
+import snake.server.SpectatorView;
+
+/**
+ * Broadcasts a bot game through a {@link SpectatorFeed} to many watchers on
+ * loopback and reports the bandwidth per tick and the CPU time of the feed's
+ * selector thread.
+ * <p>
+ * Every watcher runs on its own virtual thread, rebuilds the board with a
+ * {@link SpectatorView} and compares it after every frame with the board the
+ * game had at that tick, so the run also checks that deltas and keyframes
+ * reproduce the game exactly.
+ * <p>
+ * Run with
+ * {@code java -cp build/classes:build/bench/classes snake.bench.SpectatorBench [watchers] [ticks] [tick ms] [keyframe interval]}.
+ */
+public class SpectatorBench {
+
+    public static void main(String[] args) throws Exception {
+        int watchers = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+        long tickNanos = ((args.length > 2) ? Integer.parseInt(args[2]) : 20) * 1_000_000L;
+        int keyframeInterval = (args.length > 3) ? Integer.parseInt(args[3]) : SpectatorFeed.DEFAULT_KEYFRAME_INTERVAL;
+
+        LevelTemplate template = LevelReader.readDefaultLevels(1).get(0);
+        AtomicLongArray boards = new AtomicLongArray(ticks);
+        SpectatorFeed feed = new SpectatorFeed(0, keyframeInterval);
+
+        AtomicInteger connected = new AtomicInteger();
+        AtomicLong framesSeen = new AtomicLong();
+        AtomicLong mismatches = new AtomicLong();
+        CountDownLatch ready = new CountDownLatch(watchers);
+        CountDownLatch done = new CountDownLatch(watchers);
+        for (int i = 0; i < watchers; i++) {
+            Thread.ofVirtual().start(() -> {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), feed.getPort())) {
+                    connected.incrementAndGet();
+                    ready.countDown();
+                    watch(socket, ticks, boards, framesSeen, mismatches);
+                } catch (IOException e) {
+                    ready.countDown();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        ready.await();
+        while (feed.getWatcherCount() < connected.get()) {
+            Thread.sleep(10);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuBefore = threads.getThreadCpuTime(feed.getThread().threadId());
+        long start = System.nanoTime();
+        play(template, feed, ticks, tickNanos, boards);
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long cpu = threads.getThreadCpuTime(feed.getThread().threadId()) - cpuBefore;
+        feed.close();
+
+        long keyframes = feed.getKeyframesPublished();
+        long deltas = feed.getFramesPublished() - keyframes;
+        long deltaBytes = feed.getBytesPublished() - feed.getKeyframeBytes();
+        System.out.println("watchers=" + connected.get() + " ticks=" + ticks
+                + " seconds=" + Math.round(elapsed * 10) / 10.0
+                + " framesSeen=" + framesSeen.get() + " mismatches=" + mismatches.get()
+                + " dropped=" + feed.getFramesDropped());
+        System.out.printf("encoded: delta %.1f B, keyframe %.1f B, %.1f B/tick averaged over %d ticks%n",
+                (double) deltaBytes / Math.max(1, deltas), (double) feed.getKeyframeBytes() / Math.max(1, keyframes),
+                (double) feed.getBytesPublished() / ticks, ticks);
+        System.out.printf("sent: %.1f kB/tick to all watchers, %.1f MB/s%n",
+                feed.getBytesSent() / 1e3 / ticks, feed.getBytesSent() / 1e6 / elapsed);
+        System.out.printf("selector thread CPU: %.1f us/tick, %.0f ns/tick per watcher, %.1f%% of one core%n",
+                cpu / 1e3 / ticks, (double) cpu / ticks / Math.max(1, connected.get()), 100.0 * cpu / (elapsed * 1e9));
+    }
+
+    /**
+     * Plays a bot game at the given tick rate, starting a new game whenever
+     * one ends, and publishes every tick.
+     */
+    private static void play(LevelTemplate template, SpectatorFeed feed, int ticks, long tickNanos,
+            AtomicLongArray boards) {
+        SplittableRandom random = new SplittableRandom(1);
+        GameLevel level = new GameLevel(template, 1);
+        long deadline = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            if (level.isGameEnded()) {
+                level = new GameLevel(template, random.nextLong());
+            }
+            level.moveSnake(choose(level, random));
+            long hash = 0;
+            for (int cell = 0; cell < level.rows * level.cols; cell++) {
+                hash = hash * 31 + level.getItem(cell).code();
+            }
+            boards.set(tick, hash);
+            feed.publish(level);
+
+            deadline += tickNanos;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+        }
+    }
+
+    /**
+     * Keeps going straight most of the time and turns at random, avoiding
+     * cells that are not free when it can.
+     */
+    private static Direction choose(GameLevel level, SplittableRandom random) {
+        Direction current = level.snake.getCurrentDirection();
+        Direction[] all = Direction.values();
+        Direction wanted = (random.nextInt(8) == 0) ? all[random.nextInt(all.length)] : current;
+        for (int i = 0; i < all.length; i++) {
+            Direction d = (i == 0) ? wanted : all[(wanted.ordinal() + i) % all.length];
+            if (d == current.opposite()) continue;
+            int next = level.snake.getNextHeadCell(d);
+            if (next == Snake.OFF_BOARD) continue;
+            LevelItem item = level.getItem(next);
+            if (item == LevelItem.EMPTY || item == LevelItem.FOOD) return d;
+        }
+        return current;
+    }
+
+    /**
+     * Reads frames until the last tick, checking the rebuilt board after
+     * each one.
+     */
+    private static void watch(Socket socket, int ticks, AtomicLongArray boards,
+            AtomicLong framesSeen, AtomicLong mismatches) throws IOException {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        SpectatorView view = new SpectatorView();
+        byte[] body = new byte[1024];
+        try {
+            while (view.getTick() < ticks - 1) {
+                int length = in.readInt();
+                if (length > body.length) body = new byte[length];
+                in.readFully(body, 0, length);
+                if (!view.apply(ByteBuffer.wrap(body, 0, length))) continue;
+                framesSeen.incrementAndGet();
+                long hash = 0;
+                for (int cell = 0; cell < view.getRows() * view.getCols(); cell++) {
+                    hash = hash * 31 + view.getItem(cell).code();
+                }
+                if (hash != boards.get(view.getTick())) {
+                    mismatches.incrementAndGet();
+                }
+            }
+        } catch (EOFException e) {
+            // The feed was closed before the last tick
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package snake;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import snake.metrics.LatencyHistogram;
+
+/**
+ * Drives the game at a fixed tick rate from {@link System#nanoTime()}
+ * deadlines, and keeps the elapsed play time on the same clock.
+ * <p>
+ * Each deadline is the previous deadline plus one period, not the time the
+ * previous tick finished plus one period, so the cost of a tick never makes
+ * the game drift slower. When the loop falls behind, the {@link Policy}
+ * decides whether missed ticks are run back to back or dropped.
+ * <p>
+ * The loop runs on one daemon thread that is parked while no game is being
+ * played or the game is paused, so an idle loop uses no CPU. Control methods
+ * may be called from any thread. {@link #reset()} waits for a tick in
+ * progress to finish, so once it returns the game can be changed safely.
+ */
+public class GameLoop {
+
+    /**
+     * Receives the ticks and clock updates of the loop. Called on the loop
+     * thread.
+     */
+    public interface Listener {
+        /**
+         * Advances the game by one tick.
+         *
+         * @return true to keep running, false to stop and wait for the next {@link #start}
+         */
+        boolean tick();
+
+        /**
+         * Called when another whole second of play time has passed.
+         *
+         * @param seconds the play time in whole seconds, not counting pauses
+         */
+        void secondElapsed(int seconds);
+    }
+
+    /**
+     * What to do with ticks whose deadline has already passed.
+     */
+    public enum Policy {
+        /** Run missed ticks back to back, up to {@link #MAX_CATCH_UP_TICKS} behind. */
+        CATCH_UP,
+        /** Drop missed ticks and continue with the next deadline still ahead. */
+        SKIP
+    }
+
+    /** The number of ticks the loop may fall behind before the rest are dropped. */
+    public static final int MAX_CATCH_UP_TICKS = 3;
+
+    private enum State { IDLE, RUNNING, PAUSED, SHUT_DOWN }
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final Listener listener;
+    private final LongSupplier periodNanos;
+    private final Policy policy;
+    private final LatencyHistogram jitter;
+    private final Thread thread;
+
+    private volatile State state = State.IDLE;
+    /** Incremented whenever the schedule is reset, so the loop thread can drop stale deadlines. */
+    private long schedule = 0;
+    /** Play time accumulated before the current run, in nanoseconds. */
+    private long elapsedBefore = 0;
+    /** The clock reading the current run started at. */
+    private long runningSince = 0;
+    /** The deadline of the next tick, set when a run starts. */
+    private long firstTick = 0;
+    /** Whether the loop thread is inside {@link Listener#tick()}. */
+    private boolean ticking = false;
+
+    /**
+     * Creates a loop. Its thread is started immediately but stays parked
+     * until {@link #start} is called.
+     *
+     * @param listener receives the ticks
+     * @param periodNanos the tick period in nanoseconds, read again after every tick
+     * @param policy what to do when the loop falls behind
+     * @param jitter the histogram that the lateness of every tick is recorded into, or null
+     */
+    public GameLoop(Listener listener, LongSupplier periodNanos, Policy policy, LatencyHistogram jitter) {
+        this.listener = listener;
+        this.periodNanos = periodNanos;
+        this.policy = policy;
+        this.jitter = jitter;
+        thread = new Thread(this::run, "snake-game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts a new game: resets the play time to zero and runs the first
+     * tick right away.
+     */
+    public synchronized void start() {
+        if (state == State.SHUT_DOWN) return;
+        elapsedBefore = 0;
+        beginRun(State.RUNNING);
+    }
+
+    /**
+     * Stops ticking until the next {@link #start}, and resets the play time.
+     * Waits for a tick in progress to finish, unless called from a tick.
+     */
+    public synchronized void reset() {
+        if (state == State.SHUT_DOWN) return;
+        elapsedBefore = 0;
+        state = State.IDLE;
+        schedule++;
+        if (Thread.currentThread() == thread) return;
+        boolean interrupted = false;
+        while (ticking) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Stops ticking until {@link #resume}. The play time stands still while
+     * paused. Does nothing unless the game is running.
+     */
+    public synchronized void pause() {
+        if (state != State.RUNNING) return;
+        elapsedBefore += System.nanoTime() - runningSince;
+        state = State.PAUSED;
+        schedule++;
+    }
+
+    /**
+     * Continues a paused game, with the next tick one period from now.
+     * Does nothing unless the game is paused.
+     */
+    public synchronized void resume() {
+        if (state != State.PAUSED) return;
+        beginRun(State.RUNNING);
+        firstTick += periodNanos.getAsLong();
+    }
+
+    /**
+     * Ends the loop thread for good.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            state = State.SHUT_DOWN;
+            schedule++;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // isRunning is a getter
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    // isPaused is a getter
+    public boolean isPaused() {
+        return state == State.PAUSED;
+    }
+
+    /**
+     * Returns the play time of the current game, not counting pauses.
+     *
+     * @return the play time in whole seconds
+     */
+    public synchronized int getElapsedSeconds() {
+        long elapsed = elapsedBefore;
+        if (state == State.RUNNING) {
+            elapsed += System.nanoTime() - runningSince;
+        }
+        return (int) (elapsed / SECOND);
+    }
+
+    /**
+     * Starts a run from the current play time and wakes the loop thread.
+     * Must be called holding the lock.
+     */
+    private void beginRun(State newState) {
+        runningSince = System.nanoTime();
+        firstTick = runningSince;
+        state = newState;
+        schedule++;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * The body of the loop thread: sleeps until the earlier of the next tick
+     * and the next whole second, then handles whichever is due.
+     */
+    private void run() {
+        long mySchedule = -1;
+        long nextTick = 0;
+        long nextSecond = 0;
+        int seconds = 0;
+
+        while (state != State.SHUT_DOWN) {
+            synchronized (this) {
+                if (state == State.RUNNING && mySchedule != schedule) {
+                    mySchedule = schedule;
+                    nextTick = firstTick;
+                    seconds = (int) (elapsedBefore / SECOND);
+                    nextSecond = runningSince + (seconds + 1) * SECOND - elapsedBefore;
+                }
+            }
+            if (state != State.RUNNING) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long now = System.nanoTime();
+            long wakeAt = Math.min(nextTick, nextSecond);
+            if (now < wakeAt) {
+                LockSupport.parkNanos(this, wakeAt - now);
+                continue;
+            }
+
+            if (now >= nextSecond) {
+                seconds++;
+                nextSecond += SECOND;
+                listener.secondElapsed(seconds);
+            }
+            if (now >= nextTick) {
+                synchronized (this) {
+                    // A reset or pause since the check above cancels this tick
+                    if (mySchedule != schedule) continue;
+                    ticking = true;
+                }
+                if (jitter != null) jitter.record(now - nextTick);
+                boolean keepGoing;
+                try {
+                    keepGoing = listener.tick();
+                } finally {
+                    synchronized (this) {
+                        ticking = false;
+                        notifyAll();
+                    }
+                }
+                if (!keepGoing) {
+                    synchronized (this) {
+                        if (mySchedule == schedule) {
+                            elapsedBefore += System.nanoTime() - runningSince;
+                            state = State.IDLE;
+                        }
+                    }
+                    continue;
+                }
+                nextTick = nextDeadline(nextTick);
+            }
+        }
+    }
+
+    /**
+     * Returns the deadline after the one just served, dropping ticks that
+     * are too far behind according to the policy.
+     *
+     * @param deadline the deadline of the tick that just ran
+     * @return the deadline of the next tick
+     */
+    private long nextDeadline(long deadline) {
+        long period = Math.max(1, periodNanos.getAsLong());
+        long next = deadline + period;
+        long behind = System.nanoTime() - next;
+        if (behind <= 0) return next;
+
+        long missed = behind / period + 1;
+        if (policy == Policy.SKIP) {
+            return next + missed * period;
+        }
+        return (missed > MAX_CATCH_UP_TICKS) ? next + (missed - MAX_CATCH_UP_TICKS) * period : next;
+    }
+}
@@ -0,0 +1,107 @@
+package snake;
+
+import java.util.concurrent.atomic.AtomicLong;
+import snake.metrics.LatencyHistogram;
+import snake.model.Direction;
+
+/**
+ * A bounded, lock-free queue of direction commands from the event dispatch
+ * thread to the game loop, so turns pressed faster than the tick rate are
+ * played one per tick instead of overwriting each other.
+ * <p>
+ * There must be one producer thread and one consumer thread. Commands sit
+ * in a ring of slots; the producer publishes a slot by advancing the tail
+ * and the consumer frees it by advancing the head, each with a single
+ * ordered write, so neither side ever blocks. When the ring is full new
+ * commands are dropped.
+ * <p>
+ * Only the consumer moves the head. {@link #clear()} is called by the
+ * producer and only records how far the queue was filled; the consumer
+ * skips everything before that mark the next time it takes a command.
+ */
+public class InputQueue {
+    private final Direction[] directions;
+    private final long[] times;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    /** Commands before this position were discarded by {@link #clear()}. */
+    private final AtomicLong cleared = new AtomicLong();
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity the maximum number of queued commands, rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = 1;
+        while (size < capacity) size <<= 1;
+        directions = new Direction[size];
+        times = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Queues a command. Called by the producer thread only. A command
+     * equal to the last queued one is dropped, so a held key's auto-repeat
+     * cannot fill the queue.
+     *
+     * @param direction the requested direction
+     * @param timeNanos the {@link System#nanoTime()} reading when it was requested
+     * @return true if the command was queued
+     */
+    public boolean offer(Direction direction, long timeNanos) {
+        long t = tail.get();
+        long h = head.get();
+        if (t > Math.max(h, cleared.get()) && directions[(int) (t - 1) & mask] == direction) return false;
+        // Cleared commands keep their slots until the consumer moves past them
+        if (t - h > mask) return false;
+        int slot = (int) t & mask;
+        directions[slot] = direction;
+        times[slot] = timeNanos;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest command that changes the way the snake is moving.
+     * Commands for the current direction or its opposite are discarded on
+     * the way. Called by the consumer thread once per tick.
+     *
+     * @param current the direction the snake is moving in
+     * @param latency the histogram that the time from request to this tick is recorded into, or null
+     * @return the new direction, or null to keep moving straight
+     */
+    public Direction takeValid(Direction current, LatencyHistogram latency) {
+        // Read the tail first: seeing a command published after a clear means seeing the clear
+        long t = tail.get();
+        long h = Math.max(head.get(), cleared.get());
+        while (h < t) {
+            int slot = (int) h & mask;
+            Direction d = directions[slot];
+            long time = times[slot];
+            h++;
+            if (current == null || (d != current && !d.isOpposite(current))) {
+                head.lazySet(h);
+                if (latency != null) latency.recordSince(time);
+                return d;
+            }
+        }
+        head.lazySet(h);
+        return null;
+    }
+
+    /**
+     * Discards all queued commands. Called by the producer thread only;
+     * commands offered afterwards are kept.
+     */
+    public void clear() {
+        cleared.lazySet(tail.get());
+    }
+
+    // isEmpty is a getter
+    public boolean isEmpty() {
+        long t = tail.get();
+        return Math.max(head.get(), cleared.get()) >= t;
+    }
+}
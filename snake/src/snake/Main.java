@@ -7,11 +7,19 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.LongSupplier;
 import javax.swing.*;
+import snake.metrics.TickMetrics;
 import snake.model.Direction;
 import snake.model.Game;
 import snake.model.GameID;
+import snake.res.SpriteAtlas;
+import snake.server.SpectatorFeed;
+import snake.view.ActiveBoard;
 import snake.view.Board;
+import snake.view.GameView;
 import snake.view.HighScoreWindow;
 
 /**
@@ -20,14 +28,12 @@ import snake.view.HighScoreWindow;
 public class Main extends JFrame {
 
     private final Game game;
-    private Board board;
+    private GameView board;
     private final JLabel gameStatLabel;
-    private Direction currentDirection;
-    private boolean isRunning = false;
+    private final InputQueue inputs = new InputQueue(16);
     private boolean isDirectionSet = false;
-    private Thread gameThread = null;
-    private Timer timer;
-    private int elapsedTime = 0;
+    private final GameLoop gameLoop;
+    private final TickMetrics metrics = new TickMetrics();
 
     /**
      * Initializes the main window and game setup.
@@ -36,6 +42,14 @@ public class Main extends JFrame {
      */
     public Main() throws IOException {
         game = new Game();
+        game.setStoreTimes(metrics.dbWrite);
+        metrics.register();
+        metrics.startDumpIfRequested();
+        SpectatorFeed feed = SpectatorFeed.openIfRequested();
+        if (feed != null) {
+            game.setSpectator(feed::publish);
+            System.out.println("Spectator feed on port " + feed.getPort());
+        }
 
         setTitle("Snake");
         setSize(600, 600);
@@ -44,10 +58,18 @@ public class Main extends JFrame {
         URL url = Main.class.getClassLoader().getResource("snake/res/food.png");
         setIconImage(Toolkit.getDefaultToolkit().getImage(url));
 
-        timer = new Timer(1000, e -> {
-            elapsedTime++;
-            refreshGameStatLabel();
-        });
+        LongSupplier tickPeriod = () -> Math.max(100, 500 - (game.getSpeed() * 20)) * 1_000_000L;
+        gameLoop = new GameLoop(new GameLoop.Listener() {
+            @Override
+            public boolean tick() {
+                return playTick();
+            }
+
+            @Override
+            public void secondElapsed(int seconds) {
+                refreshGameStatLabel();
+            }
+        }, tickPeriod, GameLoop.Policy.CATCH_UP, metrics.jitter);
 
         JMenuBar menuBar = new JMenuBar();
         JMenu menuGame = new JMenu("Play");
@@ -83,9 +105,20 @@ public class Main extends JFrame {
         gameStatLabel = new JLabel("label");
         add(gameStatLabel, BorderLayout.NORTH);
 
-        // Add game board
+        // Add game board, drawn by Swing or by its own render loop
         try {
-            add(board = new Board(game), BorderLayout.CENTER);
+            if ("active".equals(System.getProperty("snake.render"))) {
+                // Menus must be heavyweight to open over the canvas
+                JPopupMenu.setDefaultLightWeightPopupEnabled(false);
+                int fps = Integer.getInteger("snake.render.fps", ActiveBoard.DEFAULT_FPS);
+                ActiveBoard activeBoard = new ActiveBoard(game, metrics.paint, tickPeriod, fps);
+                add(activeBoard, BorderLayout.CENTER);
+                board = activeBoard;
+            } else {
+                Board swingBoard = new Board(game, metrics.paint);
+                add(swingBoard, BorderLayout.CENTER);
+                board = swingBoard;
+            }
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -113,15 +146,15 @@ public class Main extends JFrame {
                         newDirection = Direction.DOWN;
                     case KeyEvent.VK_ESCAPE ->
                         restartLevel();
+                    case KeyEvent.VK_P ->
+                        togglePause();
                 }
 
                 if (newDirection != null) {
+                    inputs.offer(newDirection, System.nanoTime());
                     if (!isDirectionSet) {
                         isDirectionSet = true;
-                        currentDirection = newDirection;
                         startGameLoop();
-                    } else if (currentDirection != newDirection && !newDirection.isOpposite(currentDirection)) {
-                        currentDirection = newDirection;
                     }
                 }
             }
@@ -138,89 +171,101 @@ public class Main extends JFrame {
     }
 
     /**
-     * Stops the current game thread.
+     * Stops the current game loop until the next game is started and
+     * discards queued key presses. Returns once a tick in progress has
+     * finished, so the game can be changed afterwards. Called on the event
+     * dispatch thread, which queues the key presses.
      */
     public void stopGameThread() {
-        if (timer != null) {
-            timer.stop();
-        }
-        isRunning = false;
-        if (gameThread != null && gameThread.isAlive()) {
-            try {
-                gameThread.join();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+        gameLoop.reset();
+        inputs.clear();
     }
 
     /**
-     * Starts the game loop in a separate thread.
+     * Starts the game loop, which runs the first tick right away.
      */
     private void startGameLoop() {
-        stopGameThread();
-        isRunning = true;
-        elapsedTime = 0;
-        timer.start();
-        gameThread = new Thread(() -> {
-            while (isRunning) {
-                if (!isDirectionSet) {
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                    continue;
-                }
+        startReplayRecording();
+        gameLoop.start();
+    }
 
-                if (game.isGameEnded()) {
-                    timer.stop();
-                    elapsedTime = 0;
-                    SwingUtilities.invokeLater(() -> {
-                        String msg = "Game Over!";
-                        if (game.isBetterHighScore()) {
-                            msg += " Congratulations! You have made the high score!";
-                        }
-                        JOptionPane.showMessageDialog(
-                                Main.this, msg, "Game Over", JOptionPane.INFORMATION_MESSAGE
-                        );
-                    });
-                    isRunning = false;
-                    resetToLevelOne(game.getGameID().difficulty);
-                    break;
-                }
+    /**
+     * Pauses or resumes the running game.
+     */
+    private void togglePause() {
+        if (gameLoop.isPaused()) {
+            gameLoop.resume();
+        } else {
+            gameLoop.pause();
+        }
+    }
 
-                game.step(currentDirection);
-                board.repaint();
-                refreshGameStatLabel();
+    /**
+     * Plays one tick of the game, called by the game loop.
+     *
+     * @return true if the game goes on, false if it has ended
+     */
+    private boolean playTick() {
+        Direction direction = inputs.takeValid(game.getDirection(), metrics.input);
+        long stepStart = System.nanoTime();
+        game.step(direction);
+        metrics.step.recordSince(stepStart);
+        board.repaintChanged();
+        refreshGameStatLabel();
 
-                try {
-                    Thread.sleep(Math.max(100, 500 - (game.getSpeed() * 20)));
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
+        if (game.isGameEnded()) {
+            String msg = game.isGameWon() ? "You Win! The board is full." : "Game Over!";
+            if (game.isBetterHighScore()) {
+                msg += " Congratulations! You have made the high score!";
             }
-        });
+            String message = msg;
+            String difficulty = game.getGameID().difficulty;
+            // Levels are only switched on the event dispatch thread, after the loop has stopped
+            SwingUtilities.invokeLater(() -> {
+                resetToLevelOne(difficulty);
+                JOptionPane.showMessageDialog(
+                        Main.this, message, "Game Over", JOptionPane.INFORMATION_MESSAGE
+                );
+            });
+            return false;
+        }
+        return true;
+    }
 
-        gameThread.start();
+    /**
+     * Starts recording a replay of the current level if the
+     * {@code snake.replay.dir} system property names a directory.
+     */
+    private void startReplayRecording() {
+        String dir = System.getProperty("snake.replay.dir");
+        if (dir == null) {
+            return;
+        }
+        GameID id = game.getGameID();
+        Path file = Paths.get(dir, id.difficulty + "-" + id.level + "-" + System.currentTimeMillis() + ".replay");
+        try {
+            game.startRecording(file);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
     }
 
     /**
      * Restarts the current level.
      */
     private void restartLevel() {
+        stopGameThread();
         game.loadGame(game.getGameID());
         board.refresh();
         refreshGameStatLabel();
         isDirectionSet = false;
-        elapsedTime = 0;
     }
 
     /**
      * Updates the game status label.
      */
     private void refreshGameStatLabel() {
-        String s = "Score: " + game.getScore() + " | Time: " + elapsedTime + "s";
+        String s = "Score: " + game.getScore() + " | Time: " + gameLoop.getElapsedSeconds() + "s";
         gameStatLabel.setText(s);
     }
 
@@ -237,6 +282,7 @@ public class Main extends JFrame {
                 JMenuItem item = new JMenuItem(new AbstractAction("Level-" + i) {
                     @Override
                     public void actionPerformed(ActionEvent e) {
+                        stopGameThread();
                         game.loadGame(new GameID(s, i));
                         board.refresh();
                         pack();
@@ -281,16 +327,17 @@ public class Main extends JFrame {
     }
 
     /**
-     * Resets the game to level 1 of the given difficulty.
+     * Resets the game to level 1 of the given difficulty. Called on the
+     * event dispatch thread.
      *
      * @param difficulty the difficulty to reset to
      */
     private void resetToLevelOne(String difficulty) {
+        stopGameThread();
         game.loadGame(new GameID(difficulty, 1));
         board.refresh();
         refreshGameStatLabel();
         isDirectionSet = false;
-        elapsedTime = 0;
     }
 
     /**
@@ -299,6 +346,8 @@ public class Main extends JFrame {
      * @param args command-line arguments
      */
     public static void main(String[] args) {
+        // Decode the sprites while the levels and the database load
+        SpriteAtlas.preload();
         try {
             new Main();
         } catch (IOException ex) {
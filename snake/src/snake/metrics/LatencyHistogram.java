@@ -0,0 +1,172 @@
+package snake.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations, cheap enough to record into on every
+ * game tick.
+ * <p>
+ * Buckets are log-linear: every power of two is split into
+ * {@value #SUB_BUCKETS} equal buckets, so any recorded value is known to
+ * within about 3% while durations from one nanosecond to several minutes fit
+ * in a fixed array. Recording is a few arithmetic operations and atomic
+ * increments and never allocates, so it can be called from any thread.
+ * Percentiles are computed from a racy but monotonic read of the counts,
+ * which is good enough for monitoring.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values of 2^MAX_EXPONENT ns (about 18 minutes) and more share the last bucket. */
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param name the name shown in dumps and used for the JMX object name
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    // getName is a getter
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one duration. Negative durations are recorded as zero.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading.
+     *
+     * @param startNanos the reading taken when the measured work started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns a percentile of the recorded durations, as the upper bound of
+     * the bucket it falls in, capped at the maximum.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return getPercentileNanos(50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return getPercentileNanos(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return getPercentileNanos(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns a one-line summary in microseconds.
+     *
+     * @return the name, count and percentiles of this histogram
+     */
+    @Override
+    public String toString() {
+        return String.format("%-8s n=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                name, getCount(), getP50Nanos() / 1e3, getP99Nanos() / 1e3,
+                getP999Nanos() / 1e3, getMaxNanos() / 1e3);
+    }
+
+    /**
+     * Returns the bucket of a value. Values below {@value #SUB_BUCKETS} get a
+     * bucket each; above that, the exponent picks a row of buckets and the
+     * next {@value #SUB_BUCKET_BITS} bits the bucket within it.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + sub * width + width - 1;
+    }
+}
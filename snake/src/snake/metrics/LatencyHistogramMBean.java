@@ -0,0 +1,55 @@
+package snake.metrics;
+
+/**
+ * The management interface of a {@link LatencyHistogram}. All durations are
+ * in nanoseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the sample count
+     */
+    long getCount();
+
+    /**
+     * Returns the mean of the recorded durations.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    long getMeanNanos();
+
+    /**
+     * Returns the median of the recorded durations.
+     *
+     * @return the 50th percentile in nanoseconds
+     */
+    long getP50Nanos();
+
+    /**
+     * Returns the 99th percentile of the recorded durations.
+     *
+     * @return the 99th percentile in nanoseconds
+     */
+    long getP99Nanos();
+
+    /**
+     * Returns the 99.9th percentile of the recorded durations.
+     *
+     * @return the 99.9th percentile in nanoseconds
+     */
+    long getP999Nanos();
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @return the maximum in nanoseconds
+     */
+    long getMaxNanos();
+
+    /**
+     * Discards all recorded durations.
+     */
+    void reset();
+}
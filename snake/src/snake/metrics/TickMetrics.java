@@ -0,0 +1,104 @@
+package snake.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The latency histograms of the game loop: how long a tick's game step
+ * takes, how late the loop wakes up for a tick, how long the board takes to
+ * paint, how long high scores take to store and how long a key press takes
+ * to turn the snake.
+ * <p>
+ * Each histogram is registered as an MBean named
+ * {@code snake:type=TickMetrics,name=<histogram>}, so they can be watched
+ * live in JConsole or VisualVM. Setting the {@code snake.metrics.dump}
+ * system property to a number of seconds also prints them that often.
+ */
+public class TickMetrics {
+    /** The system property holding the dump period in seconds. */
+    public static final String DUMP_PROPERTY = "snake.metrics.dump";
+
+    /** Time spent in {@code Game.step} per tick. */
+    public final LatencyHistogram step = new LatencyHistogram("step");
+    /** How much later than scheduled the game loop woke up for a tick. */
+    public final LatencyHistogram jitter = new LatencyHistogram("jitter");
+    /** Time spent painting the board. */
+    public final LatencyHistogram paint = new LatencyHistogram("paint");
+    /** Time spent storing a high score. */
+    public final LatencyHistogram dbWrite = new LatencyHistogram("dbWrite");
+    /** Time from a key press to the tick that turns the snake. */
+    public final LatencyHistogram input = new LatencyHistogram("input");
+
+    private ScheduledExecutorService dumper = null;
+
+    /**
+     * Returns all histograms.
+     *
+     * @return the step, jitter, paint, database write and input histograms
+     */
+    public LatencyHistogram[] getHistograms() {
+        return new LatencyHistogram[] {step, jitter, paint, dbWrite, input};
+    }
+
+    /**
+     * Registers every histogram with the platform MBean server. Failures are
+     * reported and otherwise ignored, since metrics are optional.
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (LatencyHistogram h : getHistograms()) {
+            try {
+                ObjectName name = new ObjectName("snake:type=TickMetrics,name=" + h.getName());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(h, name);
+                }
+            } catch (JMException ex) {
+                System.out.println("register error: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts printing all histograms periodically if the
+     * {@value #DUMP_PROPERTY} system property is set.
+     */
+    public void startDumpIfRequested() {
+        String period = System.getProperty(DUMP_PROPERTY);
+        if (period == null) return;
+        try {
+            startDump(Long.parseLong(period.trim()));
+        } catch (NumberFormatException ex) {
+            System.out.println("Invalid " + DUMP_PROPERTY + ": " + period);
+        }
+    }
+
+    /**
+     * Prints all histograms to the console at a fixed rate, on a daemon
+     * thread so it never keeps the application alive.
+     *
+     * @param periodSeconds the number of seconds between two dumps
+     */
+    public synchronized void startDump(long periodSeconds) {
+        if (dumper != null || periodSeconds <= 0) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snake-metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(this::dump, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Prints all histograms to the console.
+     */
+    public void dump() {
+        for (LatencyHistogram h : getHistograms()) {
+            System.out.println(h);
+        }
+    }
+}
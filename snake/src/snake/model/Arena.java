@@ -0,0 +1,290 @@
+package snake.model;
+
+
+/**
+ * A level shared by many snakes at once, for arena games and bot matches.
+ * <p>
+ * All snakes record their segments in one occupancy index, so a head is
+ * checked against every body on the board with a single lookup instead of
+ * a scan per snake. Every tick first works out where each head is going,
+ * then moves every tail, then resolves collisions and finally moves the
+ * surviving heads, so all snakes move at the same time:
+ * <ul>
+ * <li>two heads entering the same cell both die,</li>
+ * <li>a head entering any body, including its own, dies,</li>
+ * <li>a head may follow a tail that leaves its cell in the same tick.</li>
+ * </ul>
+ * A tick costs a constant amount of work per snake; only removing a dead
+ * snake is proportional to its length, and each segment is removed once.
+ * <p>
+ * {@link GameLevel} remains the single-player level; replays and saved
+ * states only cover that one.
+ */
+public class Arena {
+
+    /** The unique identifier of the level. */
+    public final GameID gameID;
+    /** The number of rows of the level. */
+    public final int rows;
+    /** The number of columns of the level. */
+    public final int cols;
+    private final LevelTemplate template;
+    private final Snake[] snakes;
+    private final boolean[] alive;
+    private final int[] scores;
+    private int aliveCount = 0;
+    /** Every segment of every living snake. */
+    private final PagedBitSet occupied;
+    private final PagedBitSet heads;
+    private final PagedBitSet food;
+    /** The empty cells that hold neither a snake nor food. */
+    private final FreeCellSet freeCells;
+    private final SessionRandom random;
+    /** The tick in which each cell was last chosen by a head, to spot two heads choosing it. */
+    private final int[] claimTick;
+    private final int[] claimant;
+    private final int[] next;
+    private final boolean[] grow;
+    private final boolean[] dies;
+    private int tick = 0;
+
+    /**
+     * Creates an arena and spawns every snake at a random free place.
+     *
+     * @param template the level layout to play
+     * @param snakeCount the number of snakes
+     * @param foodCount the number of food items kept on the board
+     * @param seed the seed for spawning and food placement
+     */
+    public Arena(LevelTemplate template, int snakeCount, int foodCount, long seed) {
+        this.template = template;
+        gameID = template.gameID;
+        rows = template.rows;
+        cols = template.cols;
+        random = SessionRandom.forLevel(gameID, seed);
+
+        int cells = rows * cols;
+        occupied = new PagedBitSet(cells);
+        heads = new PagedBitSet(cells);
+        food = new PagedBitSet(cells);
+        freeCells = new FreeCellSet(template.getEmptyCells());
+        claimTick = new int[cells];
+        claimant = new int[cells];
+
+        snakes = new Snake[snakeCount];
+        alive = new boolean[snakeCount];
+        scores = new int[snakeCount];
+        next = new int[snakeCount];
+        grow = new boolean[snakeCount];
+        dies = new boolean[snakeCount];
+        for (int i = 0; i < snakeCount; i++) {
+            respawn(i);
+        }
+        for (int i = 0; i < foodCount; i++) {
+            placeFood();
+        }
+    }
+
+    /**
+     * Moves every living snake one cell at the same time.
+     *
+     * @param directions the direction of each snake by index; null entries keep going straight
+     * @return the number of snakes still alive
+     */
+    public int step(Direction[] directions) {
+        tick++;
+        for (int i = 0; i < snakes.length; i++) {
+            if (!alive[i]) continue;
+            int cell = snakes[i].getNextHeadCell(directions[i]);
+            next[i] = cell;
+            if (cell == Snake.OFF_BOARD) {
+                grow[i] = false;
+                dies[i] = true;
+                continue;
+            }
+            grow[i] = food.get(cell);
+            dies[i] = false;
+            if (claimTick[cell] == tick) {
+                dies[i] = true;
+                dies[claimant[cell]] = true;
+            } else {
+                claimTick[cell] = tick;
+                claimant[cell] = i;
+            }
+        }
+
+        for (int i = 0; i < snakes.length; i++) {
+            if (!alive[i] || grow[i]) continue;
+            int tail = snakes[i].getTailCell();
+            snakes[i].vacateTail();
+            freeCells.add(tail);
+        }
+
+        for (int i = 0; i < snakes.length; i++) {
+            if (!alive[i] || dies[i]) continue;
+            int cell = next[i];
+            if (template.getItem(cell) != LevelItem.EMPTY || occupied.get(cell)) {
+                dies[i] = true;
+            }
+        }
+
+        int eaten = 0;
+        for (int i = 0; i < snakes.length; i++) {
+            if (!alive[i] || dies[i]) continue;
+            int cell = next[i];
+            heads.clear(snakes[i].getHeadCell());
+            snakes[i].advanceHead(directions[i]);
+            heads.set(cell);
+            freeCells.remove(cell);
+            if (grow[i]) {
+                food.clear(cell);
+                scores[i]++;
+                eaten++;
+            }
+        }
+
+        for (int i = 0; i < snakes.length; i++) {
+            if (alive[i] && dies[i]) {
+                kill(i);
+            }
+        }
+        // New food only once every head has moved, so it cannot land under a head
+        for (int i = 0; i < eaten; i++) {
+            placeFood();
+        }
+
+        assert matchesFullRebuild() : "occupancy index diverged from the snakes";
+        return aliveCount;
+    }
+
+    /**
+     * Puts a new two-segment snake, moving right, at a random free place.
+     * Does nothing if the snake is alive.
+     *
+     * @param i the index of the snake
+     * @return true if the snake is alive afterwards, false if no free place was found
+     */
+    public boolean respawn(int i) {
+        if (alive[i]) return true;
+        for (int attempt = 0; attempt < 16 && freeCells.size() > 1; attempt++) {
+            int head = freeCells.get(random.nextInt(freeCells.size()));
+            int tail = head - 1;
+            if (head % cols == 0 || !freeCells.contains(tail)) continue;
+
+            snakes[i] = new Snake(head, tail, Direction.RIGHT, cols, rows, occupied);
+            freeCells.remove(head);
+            freeCells.remove(tail);
+            heads.set(head);
+            alive[i] = true;
+            scores[i] = 0;
+            aliveCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the item at the given cell: any snake, food, or else the
+     * static item of the level.
+     *
+     * @param cell the cell index {@code y * cols + x}
+     * @return the level item in that cell
+     */
+    public LevelItem getItem(int cell) {
+        if (heads.get(cell)) return LevelItem.SNAKE_HEAD;
+        if (occupied.get(cell)) return LevelItem.SNAKE_BODY;
+        if (food.get(cell)) return LevelItem.FOOD;
+        return template.getItem(cell);
+    }
+
+    // getSnakeCount is a getter
+    public int getSnakeCount() {
+        return snakes.length;
+    }
+
+    // getAliveCount is a getter
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    // isAlive is a getter
+    public boolean isAlive(int i) {
+        return alive[i];
+    }
+
+    /**
+     * Returns a snake. A dead snake keeps its last body until it respawns.
+     *
+     * @param i the index of the snake
+     * @return the snake, or null if it never spawned
+     */
+    public Snake getSnake(int i) {
+        return snakes[i];
+    }
+
+    // getScore is a getter
+    public int getScore(int i) {
+        return scores[i];
+    }
+
+    // getTick is a getter
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Removes a dead snake's body from the board.
+     */
+    private void kill(int i) {
+        Snake snake = snakes[i];
+        heads.clear(snake.getHeadCell());
+        for (int s = 0; s < snake.getLength(); s++) {
+            int cell = snake.getSegment(s);
+            occupied.clear(cell);
+            freeCells.add(cell);
+        }
+        alive[i] = false;
+        aliveCount--;
+    }
+
+    /**
+     * Places food at a random free cell, if there is one.
+     */
+    private void placeFood() {
+        if (freeCells.isEmpty()) return;
+        int cell = freeCells.get(random.nextInt(freeCells.size()));
+        freeCells.remove(cell);
+        food.set(cell);
+    }
+
+    /**
+     * Checks the shared indexes against the snakes themselves. Only
+     * evaluated when assertions are enabled.
+     *
+     * @return true if the occupancy, head and free-cell indexes are consistent
+     */
+    private boolean matchesFullRebuild() {
+        PagedBitSet expected = new PagedBitSet(rows * cols);
+        int living = 0;
+        for (int i = 0; i < snakes.length; i++) {
+            if (!alive[i]) continue;
+            living++;
+            if (!heads.get(snakes[i].getHeadCell())) return false;
+            for (int s = 0; s < snakes[i].getLength(); s++) {
+                int cell = snakes[i].getSegment(s);
+                if (expected.get(cell)) return false;
+                expected.set(cell);
+            }
+        }
+        if (!expected.sameCells(occupied) || living != aliveCount || heads.cardinality() != living) return false;
+
+        int free = 0;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if (getItem(cell) == LevelItem.EMPTY) {
+                if (!freeCells.contains(cell)) return false;
+                free++;
+            }
+        }
+        return free == freeCells.size();
+    }
+}
@@ -20,6 +20,20 @@ public enum Direction {
         return this.x == -other.x && this.y == -other.y;
     }
 
+    /**
+     * Returns the direction of a step to a neighbouring cell.
+     *
+     * @param x the change in column, -1, 0 or 1
+     * @param y the change in row, -1, 0 or 1
+     * @return the direction, or null if the step does not go to a neighbouring cell
+     */
+    public static Direction of(int x, int y) {
+        for (Direction d : values()) {
+            if (d.x == x && d.y == y) return d;
+        }
+        return null;
+    }
+
     /**
      * Returns the opposite direction of this one.
      *
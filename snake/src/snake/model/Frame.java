@@ -0,0 +1,158 @@
+package snake.model;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of a level for drawing: the item in every cell, the score and
+ * where the head is.
+ * <p>
+ * A frame only stores the snake and the food, in pages of
+ * {@value #PAGE_SIZE} cells allocated where they have been; every other
+ * cell is read from the level's template. A frame of a huge level is
+ * therefore about as small as one of a small level.
+ * <p>
+ * Frames are handed from the game thread to the painting thread through a
+ * {@link FrameExchange}. A frame never changes while the reader holds it.
+ */
+public class Frame {
+    static final int PAGE_BITS = 12;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /** The level this frame shows. */
+    public final GameID gameID;
+    /** The number of rows of the level. */
+    public final int rows;
+    /** The number of columns of the level. */
+    public final int cols;
+    private final LevelTemplate template;
+    /** The codes of the snake and food items plus one, by page; 0 or a missing page means the template's item. */
+    private final byte[][] pages;
+    int score;
+    int headX, headY;
+    int tailX, tailY;
+    boolean ended, won;
+    Direction direction;
+    Direction tailDirection;
+    long tick;
+    long publishedAt;
+
+    /**
+     * Creates an empty frame of a level, filled in by {@link FrameExchange}.
+     */
+    Frame(LevelTemplate template) {
+        this.template = template;
+        gameID = template.gameID;
+        rows = template.rows;
+        cols = template.cols;
+        pages = new byte[(rows * cols + PAGE_SIZE - 1) >>> PAGE_BITS][];
+    }
+
+    /**
+     * Returns the item at the given row and column.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return the level item in that cell
+     */
+    public LevelItem getItem(int row, int col) {
+        int cell = row * cols + col;
+        byte[] page = pages[cell >>> PAGE_BITS];
+        int code = (page != null) ? page[cell & (PAGE_SIZE - 1)] : 0;
+        return (code != 0) ? LevelItem.fromCode((byte) (code - 1)) : template.getItem(cell);
+    }
+
+    /**
+     * Sets the item at a cell; static items fall back to the template.
+     */
+    void set(int cell, LevelItem item) {
+        byte[] page = pages[cell >>> PAGE_BITS];
+        if (item == LevelItem.SNAKE_HEAD || item == LevelItem.SNAKE_BODY || item == LevelItem.FOOD) {
+            if (page == null) {
+                page = new byte[PAGE_SIZE];
+                pages[cell >>> PAGE_BITS] = page;
+            }
+            page[cell & (PAGE_SIZE - 1)] = (byte) (item.code() + 1);
+        } else if (page != null) {
+            page[cell & (PAGE_SIZE - 1)] = 0;
+        }
+    }
+
+    /**
+     * Resets every cell to the template's item.
+     */
+    void clear() {
+        Arrays.fill(pages, null);
+    }
+
+    // getScore is a getter
+    public int getScore() {
+        return score;
+    }
+
+    // getHeadX is a getter
+    public int getHeadX() {
+        return headX;
+    }
+
+    // getHeadY is a getter
+    public int getHeadY() {
+        return headY;
+    }
+
+    // getTailX is a getter
+    public int getTailX() {
+        return tailX;
+    }
+
+    // getTailY is a getter
+    public int getTailY() {
+        return tailY;
+    }
+
+    /**
+     * Returns the direction the tail moved in to reach its cell.
+     *
+     * @return the direction of the tail's last move, or null if it stayed, as when the snake grew
+     */
+    public Direction getTailDirection() {
+        return tailDirection;
+    }
+
+    // isGameEnded is a getter
+    public boolean isGameEnded() {
+        return ended;
+    }
+
+    // isGameWon is a getter
+    public boolean isGameWon() {
+        return won;
+    }
+
+    /**
+     * Returns the direction the head moved in to reach its cell.
+     *
+     * @return the current direction of the snake
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns when this frame was published, for interpolating between
+     * ticks.
+     *
+     * @return the {@link System#nanoTime()} reading at publication
+     */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    /**
+     * Returns the number of ticks played when this frame was published.
+     *
+     * @return the tick count of the session
+     */
+    public long getTick() {
+        return tick;
+    }
+}
@@ -0,0 +1,132 @@
+package snake.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands frames of one level from the game thread to the painting thread
+ * without locks, so painting never sees a half-updated board and a tick
+ * never waits for painting.
+ * <p>
+ * This is a triple buffer. The writer fills its back frame and swaps it
+ * with the shared middle frame; the reader swaps its front frame with the
+ * middle one when a newer frame is there. Each side only touches the frame
+ * it owns, and the single atomic swap both publishes a frame and hands the
+ * other side a free one. There must be one writer thread and one reader
+ * thread at a time.
+ * <p>
+ * A frame coming back to the writer may be several ticks old, so for each
+ * of the three frames the writer remembers which cells have changed since
+ * that frame was last written, and copies only those.
+ */
+public class FrameExchange {
+    /** Set in the middle index when it holds a frame the reader has not taken. */
+    private static final int FRESH = 4;
+    /** Above this many pending changes a frame is copied whole instead. */
+    private static final int MAX_PENDING = 256;
+
+    private final Frame[] frames = new Frame[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+    private final int[][] pending = new int[3][MAX_PENDING];
+    private final int[] pendingCount = new int[3];
+    private long ticks = 0;
+
+    /**
+     * Creates an exchange for a level and publishes its current state.
+     *
+     * @param level the level that frames are taken from
+     */
+    public FrameExchange(GameLevel level) {
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new Frame(level.getTemplate());
+            fillAll(frames[i], level);
+        }
+        middle.set(1 | FRESH);
+    }
+
+    /**
+     * Publishes the state of the level after a move. Called by the writer
+     * thread only.
+     *
+     * @param level the level after {@link GameLevel#moveSnake}
+     */
+    public void publish(GameLevel level) {
+        ticks++;
+        int changed = level.getChangedCount();
+        for (int f = 0; f < frames.length; f++) {
+            int n = pendingCount[f];
+            if (n > MAX_PENDING) continue;
+            if (n + changed > MAX_PENDING) {
+                pendingCount[f] = MAX_PENDING + 1;
+                continue;
+            }
+            for (int i = 0; i < changed; i++) {
+                pending[f][n++] = level.getChangedCell(i);
+            }
+            pendingCount[f] = n;
+        }
+
+        Frame frame = frames[back];
+        if (pendingCount[back] > MAX_PENDING) {
+            fillAll(frame, level);
+        } else {
+            int[] cells = pending[back];
+            for (int i = 0; i < pendingCount[back]; i++) {
+                frame.set(cells[i], level.getItem(cells[i]));
+            }
+            fillStatus(frame, level);
+        }
+        pendingCount[back] = 0;
+        back = middle.getAndSet(back | FRESH) & ~FRESH;
+    }
+
+    /**
+     * Returns the latest published frame. Called by the reader thread only;
+     * the frame stays unchanged until the next call.
+     *
+     * @return the newest frame available
+     */
+    public Frame read() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & ~FRESH;
+        }
+        return frames[front];
+    }
+
+    /**
+     * Fills a frame from scratch. Only the snake and the food are written,
+     * so this costs their size and not the level's.
+     */
+    private void fillAll(Frame frame, GameLevel level) {
+        frame.clear();
+        PagedBitSet food = level.getFood();
+        for (int cell = food.nextSetBit(0); cell >= 0; cell = food.nextSetBit(cell + 1)) {
+            frame.set(cell, LevelItem.FOOD);
+        }
+        Snake snake = level.snake;
+        for (int i = snake.getLength() - 1; i >= 0; i--) {
+            int cell = snake.getSegment(i);
+            frame.set(cell, level.getItem(cell));
+        }
+        fillStatus(frame, level);
+    }
+
+    private void fillStatus(Frame frame, GameLevel level) {
+        frame.score = level.getScore();
+        Snake snake = level.snake;
+        frame.headX = snake.getHeadX();
+        frame.headY = snake.getHeadY();
+        int tail = snake.getLength() - 1;
+        frame.tailX = snake.getSegmentX(tail);
+        frame.tailY = snake.getSegmentY(tail);
+        int vacated = level.getVacatedCell();
+        frame.tailDirection = (vacated >= 0)
+                ? Direction.of(frame.tailX - vacated % level.cols, frame.tailY - vacated / level.cols) : null;
+        frame.ended = level.isGameEnded();
+        frame.won = level.isGameWon();
+        frame.direction = snake.getCurrentDirection();
+        frame.tick = ticks;
+        frame.publishedAt = System.nanoTime();
+    }
+}
@@ -0,0 +1,192 @@
+package snake.model;
+
+/**
+ * A set of free cell indices with fast insertion, removal and lookup by
+ * rank, used to pick random empty cells without scanning the level.
+ * <p>
+ * The cells are numbered in cell order, so {@link #get(int)} gives the
+ * same cell for the same set however it came about. A level's food
+ * placement therefore only depends on which cells are free, and a
+ * snapshot of a level does not have to list them.
+ * <p>
+ * Cells are kept as bits in pages of {@value #PAGE_SIZE} cells that are only
+ * allocated once written, and a Fenwick tree over the pages counts the free
+ * cells before any page, so adding, removing and looking up a cell by rank
+ * take time logarithmic in the number of pages. A set may start from the
+ * empty cells of a {@link LevelGrid} without storing them: pages that were
+ * never written are worked out from the grid. A set for a huge level
+ * therefore costs one counter per page plus memory where the game has
+ * actually changed something.
+ */
+public class FreeCellSet {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** The grid whose empty cells fill the set initially, or null to start empty. */
+    private final LevelGrid base;
+    private final int cellCount;
+    /** The free cells of each page as bits, or null for a page still as in {@link #base}. */
+    private final long[][] pages;
+    /** The Fenwick tree of the free cell count of each page, indexed from 1. */
+    private final int[] counts;
+    private int size;
+
+    /**
+     * Creates an empty set able to hold every cell of a level.
+     *
+     * @param cellCount the number of cells in the level ({@code rows * cols})
+     */
+    public FreeCellSet(int cellCount) {
+        this(cellCount, null);
+    }
+
+    /**
+     * Creates a set holding every empty cell of a grid.
+     *
+     * @param cellCount the number of cells in the level ({@code rows * cols})
+     * @param base the grid, or null to start empty
+     */
+    FreeCellSet(int cellCount, LevelGrid base) {
+        this.base = base;
+        this.cellCount = cellCount;
+        int pageCount = (cellCount + PAGE_SIZE - 1) >>> PAGE_BITS;
+        pages = new long[pageCount][];
+        counts = new int[pageCount + 1];
+        if (base != null) {
+            // Fill in each page's count, then build the tree in one pass
+            int before = 0;
+            for (int p = 0; p < pageCount; p++) {
+                int after = base.emptyBefore(Math.min(cellCount, (p + 1) << PAGE_BITS));
+                counts[p + 1] = after - before;
+                before = after;
+            }
+            for (int i = 1; i <= pageCount; i++) {
+                int parent = i + (i & -i);
+                if (parent <= pageCount) counts[parent] += counts[i];
+            }
+            size = base.freeCount();
+        }
+    }
+
+    /**
+     * Creates a copy of another set.
+     *
+     * @param other the set to copy
+     */
+    public FreeCellSet(FreeCellSet other) {
+        base = other.base;
+        cellCount = other.cellCount;
+        pages = new long[other.pages.length][];
+        for (int p = 0; p < pages.length; p++) {
+            if (other.pages[p] != null) pages[p] = other.pages[p].clone();
+        }
+        counts = other.counts.clone();
+        size = other.size;
+    }
+
+    /**
+     * Adds a cell to the set. Does nothing if it is already present.
+     *
+     * @param cell the cell index to add
+     */
+    public void add(int cell) {
+        if (contains(cell)) return;
+        long[] page = page(cell >>> PAGE_BITS);
+        page[(cell & PAGE_MASK) >>> 6] |= 1L << cell;
+        count(cell >>> PAGE_BITS, 1);
+        size++;
+    }
+
+    /**
+     * Removes a cell from the set. Does nothing if it is not present.
+     *
+     * @param cell the cell index to remove
+     */
+    public void remove(int cell) {
+        if (!contains(cell)) return;
+        long[] page = page(cell >>> PAGE_BITS);
+        page[(cell & PAGE_MASK) >>> 6] &= ~(1L << cell);
+        count(cell >>> PAGE_BITS, -1);
+        size--;
+    }
+
+    /**
+     * Checks whether a cell is in the set.
+     *
+     * @param cell the cell index to check
+     * @return true if the cell is free, false otherwise
+     */
+    public boolean contains(int cell) {
+        long[] page = pages[cell >>> PAGE_BITS];
+        if (page != null) return (page[(cell & PAGE_MASK) >>> 6] & (1L << cell)) != 0;
+        return base != null && base.get(cell) == LevelItem.EMPTY;
+    }
+
+    /**
+     * Returns the free cell with the given number of free cells before it
+     * in cell order. Ranks are dense from 0 to {@code size() - 1}, so a
+     * uniformly random rank gives a uniformly random free cell.
+     *
+     * @param rank the rank of the cell
+     * @return the cell index
+     */
+    public int get(int rank) {
+        // Walk down the tree to the page holding the cell
+        int p = 0;
+        for (int step = Integer.highestOneBit(pages.length); step > 0; step >>>= 1) {
+            int next = p + step;
+            if (next <= pages.length && counts[next] <= rank) {
+                p = next;
+                rank -= counts[next];
+            }
+        }
+        int first = p << PAGE_BITS;
+        long[] page = pages[p];
+        if (page == null) return base.select(base.emptyBefore(first) + rank);
+        for (int w = 0; ; w++) {
+            long word = page[w];
+            int n = Long.bitCount(word);
+            if (rank < n) {
+                for (int i = 0; i < rank; i++) {
+                    word &= word - 1;
+                }
+                return first + (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            rank -= n;
+        }
+    }
+
+    // size is a getter
+    public int size() {
+        return size;
+    }
+
+    // isEmpty is a getter
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the bits of a page, first filling them in from the grid if
+     * the page was never written.
+     */
+    private long[] page(int p) {
+        long[] page = pages[p];
+        if (page == null) {
+            page = new long[PAGE_SIZE >>> 6];
+            if (base != null) {
+                int first = p << PAGE_BITS;
+                base.fillEmpty(page, first, Math.min(cellCount, first + PAGE_SIZE));
+            }
+            pages[p] = page;
+        }
+        return page;
+    }
+
+    private void count(int p, int delta) {
+        for (int i = p + 1; i <= pages.length; i += i & -i) {
+            counts[i] += delta;
+        }
+    }
+}
@@ -1,22 +1,32 @@
 package snake.model;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Scanner;
+import java.util.function.Consumer;
+import snake.metrics.LatencyHistogram;
 import snake.persistence.Database;
 import snake.persistence.HighScore;
-import snake.res.ResourceLoader;
+import snake.persistence.ReplayWriter;
 
 /**
  * Represents the overall game, including levels, high scores, and gameplay logic.
  */
 public class Game {
-    private final HashMap<String, HashMap<Integer, GameLevel>> gameLevels;
+    /** The system property giving the size of the optional "BIG" level. */
+    public static final String BIG_LEVEL_PROPERTY = "snake.bigLevel";
+
+    private final HashMap<String, HashMap<Integer, LevelTemplate>> gameLevels;
     private GameLevel gameLevel = null;
     private final Database database;
     private boolean isBetterHighScore = false;
+    private final SessionRandom seeds = new SessionRandom(System.nanoTime());
+    private ReplayWriter replay = null;
+    private LatencyHistogram storeTimes = null;
+    private Consumer<GameLevel> spectator = null;
+    private volatile FrameExchange frames = null;
     public int initialSpeed = 10;  
     
 
@@ -29,13 +39,60 @@ public class Game {
         readLevels();
     }
 
+    /**
+     * Initializes a game playing only the given levels, without a database:
+     * high scores are neither loaded nor stored. For benchmarks and tools
+     * that must not depend on the levels file or a database server.
+     *
+     * @param levels the levels that can be loaded
+     */
+    public Game(Collection<LevelTemplate> levels) {
+        gameLevels = new HashMap<>();
+        database = null;
+        for (LevelTemplate template : levels) {
+            addNewGameLevel(template);
+        }
+    }
+
      /**
-     * Loads a specified game level.
+     * Loads a specified game level with a fresh random seed.
      *
      * @param gameID the identifier of the level to load
      */
     public void loadGame(GameID gameID){
-        gameLevel = new GameLevel(gameLevels.get(gameID.difficulty).get(gameID.level));
+        loadGame(gameID, seeds.nextLong());
+    }
+
+     /**
+     * Loads a specified game level. The parsed level is shared, so this
+     * only sets up a fresh snake and food on top of it.
+     *
+     * @param gameID the identifier of the level to load
+     * @param seed the seed for food placement; reusing it replays the same food
+     */
+    public void loadGame(GameID gameID, long seed){
+        start(new GameLevel(gameLevels.get(gameID.difficulty).get(gameID.level), seed));
+    }
+
+    /**
+     * Loads a specified game level and continues it from a snapshot, such
+     * as a keyframe of a replay.
+     *
+     * @param gameID the identifier of the level to load
+     * @param seed the seed the level was first loaded with
+     * @param state the snapshot to continue from
+     */
+    public void loadGame(GameID gameID, long seed, LevelState state){
+        start(new GameLevel(gameLevels.get(gameID.difficulty).get(gameID.level), seed, state));
+    }
+
+    /**
+     * Makes a freshly created level the current one.
+     */
+    private void start(GameLevel level){
+        stopRecording();
+        gameLevel = level;
+        frames = new FrameExchange(gameLevel);
         isBetterHighScore = false;
     }
     
@@ -46,7 +103,7 @@ public class Game {
      * @return the identifier of the next level, or null if no further levels exist
      */
     public GameID getNextLevelID(GameID currentID) {
-        HashMap<Integer, GameLevel> levelsOfDifficulty = gameLevels.get(currentID.difficulty);
+        HashMap<Integer, LevelTemplate> levelsOfDifficulty = gameLevels.get(currentID.difficulty);
         if (levelsOfDifficulty == null) return null;
 
         int nextLevelNumber = currentID.level + 1;
@@ -60,6 +117,51 @@ public class Game {
      */
     public void printGameLevel(){ gameLevel.printLevel(); }
     
+    /**
+     * Starts recording the current level into a replay file. Recording stops
+     * when the game ends or another level is loaded.
+     *
+     * @param file the replay file to write
+     * @throws IOException if the file cannot be created
+     */
+    public void startRecording(Path file) throws IOException {
+        stopRecording();
+        replay = new ReplayWriter(file, gameLevel.gameID, gameLevel.getSeed());
+    }
+
+    /**
+     * Finishes the replay being recorded, if any.
+     */
+    public void stopRecording() {
+        if (replay == null) return;
+        try {
+            replay.close();
+        } catch (IOException e) {
+            System.out.println("stopRecording error: " + e.getMessage());
+        }
+        replay = null;
+    }
+
+    /**
+     * Sets the histogram that the time taken to store a high score at the
+     * end of a game is recorded into.
+     *
+     * @param storeTimes the histogram, or null to stop measuring
+     */
+    public void setStoreTimes(LatencyHistogram storeTimes) {
+        this.storeTimes = storeTimes;
+    }
+
+    /**
+     * Sets who is shown every move, such as a spectator feed. It is called
+     * on the game thread after each step and must not keep the level.
+     *
+     * @param spectator the receiver of the level after each step, or null for none
+     */
+    public void setSpectator(Consumer<GameLevel> spectator) {
+        this.spectator = spectator;
+    }
+
     /**
      * Processes a single step in the game by moving the snake.
      *
@@ -69,17 +171,72 @@ public class Game {
     public boolean step(Direction direction) {
         if (gameLevel == null) return false;
 
+        boolean wasEnded = gameLevel.isGameEnded();
         boolean stepped = gameLevel.moveSnake(direction);
+        frames.publish(gameLevel);
+        if (spectator != null) spectator.accept(gameLevel);
+        if (!wasEnded) {
+            record(gameLevel.snake.getCurrentDirection());
+        }
 
         if (gameLevel.isGameEnded()) {
+            stopRecording();
             GameID id = gameLevel.gameID;
             int score = gameLevel.getScore();
-            isBetterHighScore = database.storeHighScore(id, score);
+            long start = System.nanoTime();
+            isBetterHighScore = (database != null) && database.storeHighScore(id, score);
+            if (storeTimes != null) storeTimes.recordSince(start);
         }
 
         return stepped;
     }
 
+    /**
+     * Records the direction the snake moved in, if a replay is being recorded.
+     *
+     * @param moved the direction the snake actually moved in
+     */
+    private void record(Direction moved) {
+        if (replay == null) return;
+        try {
+            replay.record(moved, gameLevel);
+        } catch (IOException e) {
+            System.out.println("record error: " + e.getMessage());
+            stopRecording();
+        }
+    }
+
+    /**
+     * Returns the latest frame of the current level for drawing. Must only be
+     * called from one thread, normally the event dispatch thread.
+     *
+     * @return the newest published frame, or null if no level is loaded
+     */
+    public Frame readFrame() {
+        FrameExchange exchange = frames;
+        return (exchange != null) ? exchange.read() : null;
+    }
+
+    /**
+     * Returns the number of cells the last {@link #step} changed. Must be
+     * called on the thread that steps the game, before the next step.
+     *
+     * @return the number of changed cells, 0 if no level is loaded
+     */
+    public int getChangedCount() {
+        return (gameLevel != null) ? gameLevel.getChangedCount() : 0;
+    }
+
+    /**
+     * Returns a cell the last {@link #step} changed.
+     *
+     * @param i the index of the change, below {@link #getChangedCount()}
+     * @return the cell index {@code y * cols + x}
+     */
+    public int getChangedCell(int i) {
+        return gameLevel.getChangedCell(i);
+    }
+
     public Collection<String> getDifficulties(){ return gameLevels.keySet(); }
     
     public Collection<Integer> getLevelsOfDifficulty(String difficulty){
@@ -91,41 +248,33 @@ public class Game {
     public int getLevelRows(){ return gameLevel.rows; }
     public int getLevelCols(){ return gameLevel.cols; }
     public int getScore(){ return (gameLevel != null) ? gameLevel.getScore(): 0; }
-    public LevelItem getItem(int row, int col){ return gameLevel.level[row][col]; }
+    public LevelItem getItem(int row, int col){ return gameLevel.getItem(row, col); }
     public GameID getGameID(){ return (gameLevel != null) ? gameLevel.gameID : null; }
+    public long getSeed(){ return gameLevel.getSeed(); }
     public boolean isGameEnded(){ return (gameLevel != null && gameLevel.isGameEnded()); }
+    public boolean isGameWon(){ return (gameLevel != null && gameLevel.isGameWon()); }
     public boolean isBetterHighScore(){ return isBetterHighScore; }
     public int getSpeed(){ return gameLevel.speed; }
+    public Direction getDirection(){ return gameLevel.snake.getCurrentDirection(); }
     public Position getPlayerPos(){ // MAKE IT ~IMMUTABLE
-        return new Position(gameLevel.snake.getHead().x, gameLevel.snake.getHead().y); 
+        return new Position(gameLevel.snake.getHeadX(), gameLevel.snake.getHeadY());
+    }
+    public ArrayList<HighScore> getHighScores() { return (database != null) ? database.getHighScores() : new ArrayList<>(); }
+    public LevelTemplate getLevelTemplate(GameID id){
+        return gameLevels.containsKey(id.difficulty) ? gameLevels.get(id.difficulty).get(id.level) : null;
     }
-    public ArrayList<HighScore> getHighScores() { return database.getHighScores(); }
 
     /**
      * Reads and initializes game levels from a resource file.
      */
     private void readLevels(){
-        InputStream is;
-        is = ResourceLoader.loadResource("snake/res/levels.txt");
-        
-        try (Scanner sc = new Scanner(is)){
-            String line = readNextLine(sc);
-            ArrayList<String> gameLevelRows = new ArrayList<>();
-            
-            while (!line.isEmpty()){
-                GameID id = readGameID(line);
-                if (id == null) return;
-
-                gameLevelRows.clear();
-                line = readNextLine(sc);
-                while (!line.isEmpty() && line.trim().charAt(0) != ';'){
-                    gameLevelRows.add(line);                    
-                    line = readNextLine(sc);
-                }
-                addNewGameLevel(new GameLevel(gameLevelRows, id, initialSpeed));
-            }
-        } catch (Exception e){
-            System.out.println("Exception while reading levels.");
+        for (LevelTemplate template : LevelReader.readDefaultLevels(initialSpeed)){
+            addNewGameLevel(template);
+        }
+        // -Dsnake.bigLevel=N adds an open N by N level, for trying out huge boards
+        int bigLevel = Integer.getInteger(BIG_LEVEL_PROPERTY, 0);
+        if (bigLevel > 0) {
+            addNewGameLevel(new LevelTemplate(new GameID("BIG", 1), bigLevel, bigLevel, initialSpeed));
         }
     }
     
@@ -134,8 +283,8 @@ public class Game {
      *
      * @param gameLevel the level to add
      */
-    private void addNewGameLevel(GameLevel gameLevel){
-        HashMap<Integer, GameLevel> levelsOfDifficulty;
+    private void addNewGameLevel(LevelTemplate gameLevel){
+        HashMap<Integer, LevelTemplate> levelsOfDifficulty;
         if (gameLevels.containsKey(gameLevel.gameID.difficulty)){
             levelsOfDifficulty = gameLevels.get(gameLevel.gameID.difficulty);
             levelsOfDifficulty.put(gameLevel.gameID.level, gameLevel);
@@ -146,38 +295,6 @@ public class Game {
                     
 
         }
-        database.storeHighScore(gameLevel.gameID, 0);
+        if (database != null) database.storeHighScore(gameLevel.gameID, 0);
     }
-  
-    /**
-     * Reads the next non-empty line from the scanner.
-     *
-     * @param sc the scanner
-     * @return the next non-empty line as a string
-     */
-    private String readNextLine(Scanner sc){
-        String line = "";
-        while (sc.hasNextLine() && line.trim().isEmpty()){
-            line = sc.nextLine();
-        }
-        return line;
-    }
-    
-    /**
-     * Parses a GameID from a line of text.
-     *
-     * @param line the line containing a GameID definition
-     * @return the parsed GameID, or null if parsing fails
-     */
-    private GameID readGameID(String line){
-        line = line.trim();
-        if (line.isEmpty() || line.charAt(0) != ';') return null;
-        Scanner s = new Scanner(line);
-        s.next(); 
-        if (!s.hasNext()) return null;
-        String difficulty = s.next().toUpperCase();
-        if (!s.hasNextInt()) return null;
-        int id = s.nextInt();
-        return new GameID(difficulty, id);
-    }    
 }
@@ -1,11 +1,13 @@
 package snake.model;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
 
 /**
  * Represents a single game level, including its layout, snake,
  * current score, and logic for movement and game end conditions.
+ * <p>
+ * Walls, rocks and empty cells come from a shared {@link LevelTemplate};
+ * a level only owns the snake and food placed on top of it.
  */
 public class GameLevel {
 
@@ -15,14 +17,31 @@ public class GameLevel {
     public final int rows;
     /** The number of columns in the level. */
     public final int cols;
-    /** The grid representing the level layout. */
-    public final LevelItem[][] level;
+    /** The shared static layout this level is played on. */
+    private final LevelTemplate template;
+    /** The cells currently holding food. */
+    private final PagedBitSet food;
     /** The snake currently in this level. */
     public Snake snake;
     /** The current score. */
     public int score;
     /** The current speed of the snake. */
     public int speed = 1;
+    /** The empty cells food can be placed on; shared with the template until first changed. */
+    private FreeCellSet freeCells;
+    /** Whether {@link #freeCells} is a private copy that may be changed. */
+    private boolean ownsFreeCells = false;
+    /** The seed this session was started with. */
+    private final long seed;
+    /** The random source used for food placement, derived from the level and the seed. */
+    private final SessionRandom random;
+    /** Whether the board filled up so that no more food fits. */
+    private boolean won = false;
+    /** The cells whose item changed during the last move. */
+    private int[] changedCells = new int[8];
+    private int changedCount = 0;
+    /** The cell the tail left during the last move, or -1 if it stayed. */
+    private int vacatedCell = -1;
 
     /**
      * Returns the current score.
@@ -34,99 +53,131 @@ public class GameLevel {
     }
 
     /**
-     * Constructs a new GameLevel from given rows of text, an ID, and an initial speed.
+     * Constructs a new GameLevel in its starting state on top of a template.
+     * The same template and seed always produce the same food sequence.
      *
-     * @param gameLevelRows the textual rows defining the level
-     * @param gameID the unique ID of this level
-     * @param speed the initial speed of the snake
+     * @param template the level layout to play
+     * @param seed the seed for food placement
      */
-    public GameLevel(ArrayList<String> gameLevelRows, GameID gameID, int speed) {
-        this.gameID = gameID;
-        this.speed = speed;
-
-        int c = 0;
-        for (String s : gameLevelRows) {
-            if (s.length() > c) c = s.length();
+    public GameLevel(LevelTemplate template, long seed) {
+        this.template = template;
+        this.seed = seed;
+        random = SessionRandom.forLevel(template.gameID, seed);
+        gameID = template.gameID;
+        speed = template.speed;
+        rows = template.rows;
+        cols = template.cols;
+        snake = template.newSnake();
+        food = new PagedBitSet(rows * cols);
+        for (int cell : template.getFoodCells()) {
+            food.set(cell);
         }
-        rows = gameLevelRows.size();
-        cols = c;
-        level = new LevelItem[rows][cols];
-        score = 0;
+        freeCells = template.getFreeCells();
+    }
 
-        // Initialize the level and snake from the provided layout
-        for (int i = 0; i < rows; i++) {
-            String s = gameLevelRows.get(i);
-            for (int j = 0; j < s.length(); j++) {
-                switch (s.charAt(j)) {
-                    case '#': level[i][j] = LevelItem.WALL; break;
-                    case '@': 
-                        snake = new Snake(new Position(j, i), Direction.RIGHT);
-                        level[i][j] = LevelItem.EMPTY; 
-                        break;
-                    case 'O': level[i][j] = LevelItem.SNAKE_BODY; break;
-                    case 'F': level[i][j] = LevelItem.FOOD; break;
-                    case 'R': level[i][j] = LevelItem.ROCK; break;
-                    default:  level[i][j] = LevelItem.EMPTY; break;
-                }
-            }
-            for (int j = s.length(); j < cols; j++) {
-                level[i][j] = LevelItem.EMPTY;
-            }
+    /**
+     * Constructs a GameLevel continuing from a snapshot taken with
+     * {@link #captureState()} on the same template and seed.
+     *
+     * @param template the level layout to play
+     * @param seed the seed the snapshotted level was started with
+     * @param state the snapshot to continue from
+     */
+    public GameLevel(LevelTemplate template, long seed, LevelState state) {
+        this.template = template;
+        this.seed = seed;
+        random = new SessionRandom(state.randomState);
+        gameID = template.gameID;
+        rows = template.rows;
+        cols = template.cols;
+        speed = state.speed;
+        score = state.score;
+        won = state.won;
+        int[] body = state.getBody();
+        snake = new Snake(body, state.direction, cols, rows);
+        food = new PagedBitSet(rows * cols);
+        // The free cells follow from the level, the snake and the food
+        freeCells = new FreeCellSet(template.getEmptyCells());
+        ownsFreeCells = true;
+        for (int cell : body) {
+            freeCells.remove(cell);
+        }
+        for (int cell : state.getFood()) {
+            food.set(cell);
+            freeCells.remove(cell);
         }
-
-        updateSnakeInLevel();
     }
 
     /**
-     * Constructs a copy of another GameLevel.
+     * Takes a snapshot of everything that changes during play.
      *
-     * @param gl the GameLevel to copy
-     */
-    public GameLevel(GameLevel gl) {
-        gameID = gl.gameID;
-        speed = gl.speed;
-        rows = gl.rows;
-        cols = gl.cols;
-        snake = new Snake(gl.snake.getHead(), gl.snake.getCurrentDirection());
-        level = new LevelItem[rows][cols];
-        for (int i = 0; i < rows; i++) {
-            System.arraycopy(gl.level[i], 0, level[i], 0, cols);
+     * @return the current state of this level
+     */
+    public LevelState captureState() {
+        int[] body = new int[snake.getLength()];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = snake.getSegment(i);
         }
+        return new LevelState(score, speed, won, random.getState(), snake.getCurrentDirection(),
+                body, getFoodCells());
+    }
 
-        updateSnakeInLevel();
+    // getSeed is a getter
+    public long getSeed() {
+        return seed;
+    }
+
+    // getTemplate is a getter
+    public LevelTemplate getTemplate() {
+        return template;
+    }
+
+    // getVacatedCell is a getter: the cell the tail left during the last move, or -1 if it stayed
+    int getVacatedCell() {
+        return vacatedCell;
     }
 
     /**
-     * Updates the level array to match the snake's current position.
+     * Returns the cells holding food.
+     *
+     * @return the food cells in ascending order
      */
-    private void updateSnakeInLevel() {
-        // Clear old snake positions
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (level[i][j] == LevelItem.SNAKE_BODY || level[i][j] == LevelItem.SNAKE_HEAD) {
-                    level[i][j] = LevelItem.EMPTY;
-                }
-            }
-        }
+    public int[] getFoodCells() {
+        return food.toArray();
+    }
 
-        // Set new snake positions
-        for (Position p : snake.getBody()) {
-            if (p.y >= 0 && p.y < rows && p.x >= 0 && p.x < cols) {
-                level[p.y][p.x] = p.equals(snake.getHead()) ? LevelItem.SNAKE_HEAD : LevelItem.SNAKE_BODY;
-            }
-        }
+    // getFreeCells is a getter; callers must not modify the returned set
+    FreeCellSet getFreeCells() {
+        return freeCells;
+    }
+
+    // getFood is a getter; callers must not modify the returned set
+    PagedBitSet getFood() {
+        return food;
     }
 
     /**
-     * Checks if the game has ended (snake hit a wall, rock, or itself).
+     * Checks if the game has ended (snake hit a wall, rock, or itself,
+     * or the board is full).
      *
      * @return true if the game is over, false otherwise
      */
     public boolean isGameEnded() {
-        Position head = snake.getHead();
-        return (level[head.y][head.x] == LevelItem.WALL 
-             || level[head.y][head.x] == LevelItem.ROCK
-             || snake.checkCollision(head));
+        if (won) return true;
+        LevelItem li = template.getItem(snake.getHeadCell());
+        return (li == LevelItem.WALL
+             || li == LevelItem.ROCK
+             || snake.checkCollision(snake.getHeadCell()));
+    }
+
+    /**
+     * Checks if the game was won, i.e. the snake grew until no empty cell
+     * was left for new food.
+     *
+     * @return true if the board is full, false otherwise
+     */
+    public boolean isGameWon() {
+        return won;
     }
 
     /**
@@ -136,7 +187,7 @@ public class GameLevel {
      * @return true if free, false otherwise
      */
     public boolean isFree(Position p) {
-        LevelItem li = level[p.y][p.x];
+        LevelItem li = getItem(p.y, p.x);
         return (li == LevelItem.EMPTY || li == LevelItem.FOOD);
     }
 
@@ -149,35 +200,138 @@ public class GameLevel {
      * @return true if the move succeeded, false if the game ended
      */
     public boolean moveSnake(Direction d) {
+        changedCount = 0;
+        vacatedCell = -1;
         if (isGameEnded()) return false;
 
-        boolean grow = (level[snake.getHead().translate(d).y][snake.getHead().translate(d).x] == LevelItem.FOOD);
+        int oldHead = snake.getHeadCell();
+        int oldTail = snake.getTailCell();
+        int next = snake.getNextHeadCell(d);
+        boolean grow = next != Snake.OFF_BOARD && food.get(next);
         snake.move(d, grow);
+        if (!grow) vacatedCell = oldTail;
+
+        markChanged(oldHead);
+        if (next != Snake.OFF_BOARD) markChanged(next);
+        if (!grow) markChanged(oldTail);
 
         if (isGameEnded()) return false;
 
+        // The tail is released first because the new head may take the cell the tail just left
+        FreeCellSet free = writableFreeCells();
+        if (grow) {
+            food.clear(next);
+        } else if (template.getItem(oldTail) == LevelItem.EMPTY) {
+            free.add(oldTail);
+        }
+        free.remove(next);
+
         if (grow) {
             score++;
             speed++;
             placeFood();
         }
 
-        updateSnakeInLevel();
+        assert matchesFullRebuild() : "free-cell index diverged from the level";
         return true;
     }
 
     /**
-     * Places food at a random empty location in the level.
+     * Checks that the free-cell index holds exactly the empty cells of the
+     * level. Only evaluated when assertions are enabled.
+     *
+     * @return true if the index agrees with a scan of the level
+     */
+    private boolean matchesFullRebuild() {
+        int empty = 0;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if (getItem(cell) == LevelItem.EMPTY) {
+                if (!freeCells.contains(cell)) return false;
+                empty++;
+            }
+        }
+        return empty == freeCells.size();
+    }
+
+    /**
+     * Returns the item at the given row and column.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return the level item in that cell
+     */
+    public LevelItem getItem(int row, int col) {
+        return getItem(row * cols + col);
+    }
+
+    /**
+     * Returns the item at the given cell index: the snake and food of this
+     * level, or else the static item of the template.
+     *
+     * @param cell the cell index {@code y * cols + x}
+     * @return the level item in that cell
+     */
+    public LevelItem getItem(int cell) {
+        if (cell == snake.getHeadCell()) return LevelItem.SNAKE_HEAD;
+        if (snake.occupies(cell)) return LevelItem.SNAKE_BODY;
+        if (food.get(cell)) return LevelItem.FOOD;
+        return template.getItem(cell);
+    }
+
+    /**
+     * Returns the free-cell index, first copying it from the template if
+     * this level still shares it.
+     *
+     * @return a free-cell index owned by this level
+     */
+    private FreeCellSet writableFreeCells() {
+        if (!ownsFreeCells) {
+            freeCells = new FreeCellSet(freeCells);
+            ownsFreeCells = true;
+        }
+        return freeCells;
+    }
+
+    /**
+     * Places food at a random empty location in the level. If no empty
+     * cell is left the board is full and the game is won.
      */
     private void placeFood() {
-        Random rand = new Random();
-        int x, y;
-        do {
-            x = rand.nextInt(cols);
-            y = rand.nextInt(rows);
-        } while (level[y][x] != LevelItem.EMPTY);
+        FreeCellSet free = writableFreeCells();
+        if (free.isEmpty()) {
+            won = true;
+            return;
+        }
+        int cell = free.get(random.nextInt(free.size()));
+        free.remove(cell);
+        food.set(cell);
+        markChanged(cell);
+    }
+
+    /**
+     * Returns the number of cells whose item changed during the last move.
+     *
+     * @return the number of changed cells; a cell may be counted twice
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
 
-        level[y][x] = LevelItem.FOOD;
+    /**
+     * Returns one of the cells whose item changed during the last move.
+     *
+     * @param i the index of the change, from 0 to {@link #getChangedCount()} - 1
+     * @return the cell index {@code y * cols + x}
+     */
+    public int getChangedCell(int i) {
+        return changedCells[i];
+    }
+
+    private void markChanged(int cell) {
+        if (changedCount == changedCells.length) {
+            changedCells = Arrays.copyOf(changedCells, changedCount * 2);
+        }
+        changedCells[changedCount++] = cell;
     }
 
     /**
@@ -186,7 +340,7 @@ public class GameLevel {
     public void printLevel() {
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                System.out.print(level[i][j].representation);
+                System.out.print(getItem(i, j).representation);
             }
             System.out.println();
         }
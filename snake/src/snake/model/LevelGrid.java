@@ -0,0 +1,157 @@
+package snake.model;
+
+import java.util.Arrays;
+
+/**
+ * The static layer of a level, stored row by row as only the cells that
+ * hold a wall or a rock. Empty regions cost nothing, so a mostly open level
+ * of 10,000 by 10,000 cells takes a few hundred kilobytes.
+ * <p>
+ * Besides looking up items, the grid numbers the empty cells in cell order
+ * ({@link #emptyBefore}, {@link #select}), which lets a {@link FreeCellSet} start
+ * out as "every empty cell" without listing them.
+ */
+final class LevelGrid {
+    final int rows;
+    final int cols;
+    /** The columns holding a wall or rock in each row, ascending, or null for a row without any. */
+    private final int[][] columns;
+    /** The item codes of those columns. */
+    private final byte[][] items;
+    /** The number of empty cells in the rows above each row; one entry more than rows. */
+    private final long[] freeBefore;
+
+    /**
+     * Creates a grid. Rows may share their arrays.
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param columns the occupied columns of each row, ascending, or null for an empty row
+     * @param items the item code of each occupied column
+     */
+    LevelGrid(int rows, int cols, int[][] columns, byte[][] items) {
+        this.rows = rows;
+        this.cols = cols;
+        this.columns = columns;
+        this.items = items;
+        freeBefore = new long[rows + 1];
+        for (int y = 0; y < rows; y++) {
+            int taken = (columns[y] == null) ? 0 : columns[y].length;
+            freeBefore[y + 1] = freeBefore[y] + cols - taken;
+        }
+    }
+
+    /**
+     * Returns the static item at the given cell.
+     *
+     * @param cell the cell index {@code y * cols + x}
+     * @return a wall, a rock or an empty cell
+     */
+    LevelItem get(int cell) {
+        int y = cell / cols;
+        int[] taken = columns[y];
+        if (taken == null) return LevelItem.EMPTY;
+        int i = Arrays.binarySearch(taken, cell - y * cols);
+        return (i >= 0) ? LevelItem.fromCode(items[y][i]) : LevelItem.EMPTY;
+    }
+
+    /**
+     * Returns the first cell at or after the given one that holds a wall or
+     * a rock. Rows without any are skipped without looking at their cells.
+     *
+     * @param cell the cell to start from
+     * @return the cell index, or {@code rows * cols} if there is none
+     */
+    int nextTaken(int cell) {
+        for (int y = cell / cols; y < rows; y++) {
+            int[] taken = columns[y];
+            if (taken == null) continue;
+            int rowStart = y * cols;
+            int i = Arrays.binarySearch(taken, Math.max(0, cell - rowStart));
+            if (i < 0) i = -i - 1;
+            if (i < taken.length) return rowStart + taken[i];
+        }
+        return rows * cols;
+    }
+
+    /**
+     * Returns the number of empty cells.
+     *
+     * @return the empty cell count
+     */
+    int freeCount() {
+        return (int) freeBefore[rows];
+    }
+
+    /**
+     * Returns how many empty cells come before a cell in cell order. For
+     * an empty cell this is its position among the empty cells.
+     *
+     * @param cell any cell, or {@code rows * cols} for the end of the level
+     * @return the number of empty cells before it
+     */
+    int emptyBefore(int cell) {
+        int y = cell / cols;
+        if (y >= rows) return freeCount();
+        int x = cell - y * cols;
+        int[] taken = columns[y];
+        int takenBefore = 0;
+        if (taken != null) {
+            int i = Arrays.binarySearch(taken, x);
+            takenBefore = (i >= 0) ? i : -i - 1;
+        }
+        return (int) (freeBefore[y] + x - takenBefore);
+    }
+
+    /**
+     * Sets the bits of the empty cells from one cell up to, but not
+     * including, another, bit 0 standing for the first cell, and clears
+     * the bits of the walls and rocks.
+     *
+     * @param bits the bits to fill, at least {@code to - from} long
+     * @param from the first cell
+     * @param to the cell after the last one
+     */
+    void fillEmpty(long[] bits, int from, int to) {
+        int n = to - from;
+        for (int w = 0; w < n >>> 6; w++) {
+            bits[w] = -1L;
+        }
+        if ((n & 63) != 0) bits[n >>> 6] = (1L << n) - 1;
+        for (int y = from / cols; y < rows && y * cols < to; y++) {
+            int[] taken = columns[y];
+            if (taken == null) continue;
+            int rowStart = y * cols;
+            int i = Arrays.binarySearch(taken, Math.max(0, from - rowStart));
+            if (i < 0) i = -i - 1;
+            for (; i < taken.length && rowStart + taken[i] < to; i++) {
+                int b = rowStart + taken[i] - from;
+                bits[b >>> 6] &= ~(1L << b);
+            }
+        }
+    }
+
+    /**
+     * Returns the empty cell at a position in cell order; the inverse of
+     * {@link #emptyBefore} on empty cells.
+     *
+     * @param k the position, from 0 to {@link #freeCount()} - 1
+     * @return the cell index
+     */
+    int select(int k) {
+        int lo = 0, hi = rows - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (freeBefore[mid] <= k) lo = mid; else hi = mid - 1;
+        }
+        int x = (int) (k - freeBefore[lo]);
+        int[] taken = columns[lo];
+        if (taken != null) {
+            for (int c : taken) {
+                if (c > x) break;
+                x++;
+            }
+        }
+        return lo * cols + x;
+    }
+}
@@ -28,4 +28,26 @@ public enum LevelItem {
 
     /** The character representation of the level item. */
     public final char representation;
+
+    /** All items, indexed by their byte code. */
+    private static final LevelItem[] BY_CODE = values();
+
+    /**
+     * Returns the compact code used to store this item in a level grid.
+     *
+     * @return the byte code of this item
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Returns the level item stored under the given byte code.
+     *
+     * @param code a code previously returned by {@link #code()}
+     * @return the matching level item
+     */
+    public static LevelItem fromCode(byte code) {
+        return BY_CODE[code];
+    }
 }
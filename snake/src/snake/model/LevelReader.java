@@ -0,0 +1,90 @@
+package snake.model;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Scanner;
+import snake.res.ResourceLoader;
+
+/**
+ * Parses level definitions into {@link LevelTemplate}s, independent of any
+ * window or database.
+ */
+public class LevelReader {
+
+    /** The resource holding the levels shipped with the game. */
+    public static final String DEFAULT_LEVELS = "snake/res/levels.txt";
+
+    /**
+     * Reads the levels shipped with the game.
+     *
+     * @param initialSpeed the initial speed of the snake in every level
+     * @return the parsed levels in file order
+     */
+    public static ArrayList<LevelTemplate> readDefaultLevels(int initialSpeed) {
+        return readLevels(ResourceLoader.loadResource(DEFAULT_LEVELS), initialSpeed);
+    }
+
+    /**
+     * Reads game levels from a stream. Each level starts with a
+     * {@code ; DIFFICULTY number} line followed by its rows.
+     *
+     * @param is the stream to read
+     * @param initialSpeed the initial speed of the snake in every level
+     * @return the levels parsed before the end of input or the first malformed header
+     */
+    public static ArrayList<LevelTemplate> readLevels(InputStream is, int initialSpeed) {
+        ArrayList<LevelTemplate> levels = new ArrayList<>();
+        try (Scanner sc = new Scanner(is)){
+            String line = readNextLine(sc);
+            ArrayList<String> gameLevelRows = new ArrayList<>();
+
+            while (!line.isEmpty()){
+                GameID id = readGameID(line);
+                if (id == null) break;
+
+                gameLevelRows.clear();
+                line = readNextLine(sc);
+                while (!line.isEmpty() && line.trim().charAt(0) != ';'){
+                    gameLevelRows.add(line);
+                    line = readNextLine(sc);
+                }
+                levels.add(new LevelTemplate(gameLevelRows, id, initialSpeed));
+            }
+        } catch (Exception e){
+            System.out.println("Exception while reading levels.");
+        }
+        return levels;
+    }
+
+    /**
+     * Reads the next non-empty line from the scanner.
+     *
+     * @param sc the scanner
+     * @return the next non-empty line as a string
+     */
+    private static String readNextLine(Scanner sc){
+        String line = "";
+        while (sc.hasNextLine() && line.trim().isEmpty()){
+            line = sc.nextLine();
+        }
+        return line;
+    }
+
+    /**
+     * Parses a GameID from a line of text.
+     *
+     * @param line the line containing a GameID definition
+     * @return the parsed GameID, or null if parsing fails
+     */
+    private static GameID readGameID(String line){
+        line = line.trim();
+        if (line.isEmpty() || line.charAt(0) != ';') return null;
+        Scanner s = new Scanner(line);
+        s.next();
+        if (!s.hasNext()) return null;
+        String difficulty = s.next().toUpperCase();
+        if (!s.hasNextInt()) return null;
+        int id = s.nextInt();
+        return new GameID(difficulty, id);
+    }
+}
@@ -0,0 +1,94 @@
+package snake.model;
+
+/**
+ * A snapshot of everything that changes while a {@link GameLevel} is
+ * played: the snake, the food, the score, the speed and the state of the
+ * random generator. Together with the level template it is enough to
+ * continue the game exactly where the snapshot was taken.
+ * <p>
+ * The free cells are not kept: food is picked by rank in cell order, so
+ * they follow from the template, the snake and the food.
+ */
+public class LevelState {
+    /** The score at the time of the snapshot. */
+    public final int score;
+    /** The speed at the time of the snapshot. */
+    public final int speed;
+    /** Whether the board was already full. */
+    public final boolean won;
+    /** The state of the session's random generator. */
+    public final long randomState;
+    /** The direction the snake was moving in. */
+    public final Direction direction;
+    private final int[] body;
+    private final int[] food;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param score the score
+     * @param speed the speed
+     * @param won whether the board was full
+     * @param randomState the state of the random generator
+     * @param direction the direction the snake was moving in
+     * @param body the cells of the snake, head first
+     * @param food the cells holding food
+     */
+    public LevelState(int score, int speed, boolean won, long randomState, Direction direction, int[] body, int[] food) {
+        this.score = score;
+        this.speed = speed;
+        this.won = won;
+        this.randomState = randomState;
+        this.direction = direction;
+        this.body = body.clone();
+        this.food = food.clone();
+    }
+
+    /**
+     * Returns the cells of the snake.
+     *
+     * @return a copy of the snake's cells, head first
+     */
+    public int[] getBody() {
+        return body.clone();
+    }
+
+    /**
+     * Returns the cells holding food.
+     *
+     * @return a copy of the food cells
+     */
+    public int[] getFood() {
+        return food.clone();
+    }
+
+    // getBodyLength is a getter
+    public int getBodyLength() {
+        return body.length;
+    }
+
+    /**
+     * Returns one cell of the snake without copying the body.
+     *
+     * @param i the index of the segment, 0 for the head
+     * @return the cell of the segment
+     */
+    public int getBodyCell(int i) {
+        return body[i];
+    }
+
+    // getFoodCount is a getter
+    public int getFoodCount() {
+        return food.length;
+    }
+
+    /**
+     * Returns one food cell without copying the food.
+     *
+     * @param i the index of the food
+     * @return the cell holding the food
+     */
+    public int getFoodCell(int i) {
+        return food[i];
+    }
+}
@@ -0,0 +1,201 @@
+package snake.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An immutable, parsed level layout shared by every session playing it.
+ * <p>
+ * The template holds the static layer (walls, rocks and empty cells), the
+ * starting snake and food, and the free-cell index of the starting board.
+ * A {@link GameLevel} keeps only the snake and food on top of it, so loading
+ * or restarting a level does not copy the board. The static layer is kept
+ * in a {@link LevelGrid} and the free-cell index starts out implicit, so a
+ * large open level costs memory in proportion to its walls, not its area.
+ */
+public class LevelTemplate {
+
+    /** The unique identifier for this level. */
+    public final GameID gameID;
+    /** The number of rows in the level. */
+    public final int rows;
+    /** The number of columns in the level. */
+    public final int cols;
+    /** The initial speed of the snake. */
+    public final int speed;
+    /** The static layer: walls, rocks and empty cells. */
+    private final LevelGrid grid;
+    /** The cells holding food when the level starts. */
+    private final int[] foodCells;
+    /** Every empty cell of the static layer; copied by sessions restored from a snapshot. */
+    private final FreeCellSet emptyCells;
+    /** The empty cells of the starting board; copied by a session before its first change. */
+    private final FreeCellSet freeCells;
+    private final int startX;
+    private final int startY;
+    private final Direction startDirection = Direction.RIGHT;
+
+    /**
+     * Parses a level template from given rows of text, an ID, and an initial speed.
+     *
+     * @param gameLevelRows the textual rows defining the level
+     * @param gameID the unique ID of this level
+     * @param speed the initial speed of the snake
+     */
+    public LevelTemplate(ArrayList<String> gameLevelRows, GameID gameID, int speed) {
+        this.gameID = gameID;
+        this.speed = speed;
+
+        int c = 0;
+        for (String s : gameLevelRows) {
+            if (s.length() > c) c = s.length();
+        }
+        rows = gameLevelRows.size();
+        cols = c;
+        int[][] columns = new int[rows][];
+        byte[][] items = new byte[rows][];
+
+        // Snake segments ('@', 'O') and food are not part of the static layer
+        int x = -1, y = -1;
+        ArrayList<Integer> food = new ArrayList<>();
+        int[] rowColumns = new int[cols];
+        byte[] rowItems = new byte[cols];
+        for (int i = 0; i < rows; i++) {
+            String s = gameLevelRows.get(i);
+            int taken = 0;
+            for (int j = 0; j < s.length(); j++) {
+                LevelItem item = null;
+                switch (s.charAt(j)) {
+                    case '#': item = LevelItem.WALL; break;
+                    case '@':
+                        x = j;
+                        y = i;
+                        break;
+                    case 'F':
+                        food.add(i * cols + j);
+                        break;
+                    case 'R': item = LevelItem.ROCK; break;
+                    default: break;
+                }
+                if (item != null) {
+                    rowColumns[taken] = j;
+                    rowItems[taken++] = item.code();
+                }
+            }
+            if (taken > 0) {
+                columns[i] = Arrays.copyOf(rowColumns, taken);
+                items[i] = Arrays.copyOf(rowItems, taken);
+            }
+        }
+        grid = new LevelGrid(rows, cols, columns, items);
+        startX = x;
+        startY = y;
+        foodCells = food.stream().mapToInt(Integer::intValue).toArray();
+        emptyCells = new FreeCellSet(rows * cols, grid);
+        freeCells = newFreeCells();
+    }
+
+    /**
+     * Creates an open level surrounded by walls, with the snake in the
+     * middle and one food item ahead of it. Used for levels too large to
+     * write out as text.
+     *
+     * @param gameID the unique ID of this level
+     * @param rows the number of rows, walls included, at least 3
+     * @param cols the number of columns, walls included, at least 8
+     * @param speed the initial speed of the snake
+     */
+    public LevelTemplate(GameID gameID, int rows, int cols, int speed) {
+        if (rows < 3 || cols < 8) throw new IllegalArgumentException("Level too small: " + rows + "x" + cols);
+        this.gameID = gameID;
+        this.speed = speed;
+        this.rows = rows;
+        this.cols = cols;
+
+        // Every inner row shares the same two wall columns
+        int[] all = new int[cols];
+        for (int i = 0; i < cols; i++) {
+            all[i] = i;
+        }
+        byte[] allWalls = new byte[cols];
+        Arrays.fill(allWalls, LevelItem.WALL.code());
+        int[] sides = {0, cols - 1};
+        byte[] sideWalls = {LevelItem.WALL.code(), LevelItem.WALL.code()};
+        int[][] columns = new int[rows][];
+        byte[][] items = new byte[rows][];
+        Arrays.fill(columns, sides);
+        Arrays.fill(items, sideWalls);
+        columns[0] = columns[rows - 1] = all;
+        items[0] = items[rows - 1] = allWalls;
+        grid = new LevelGrid(rows, cols, columns, items);
+
+        startX = cols / 2;
+        startY = rows / 2;
+        foodCells = new int[] {startY * cols + Math.min(startX + 3, cols - 2)};
+        emptyCells = new FreeCellSet(rows * cols, grid);
+        freeCells = newFreeCells();
+    }
+
+    /**
+     * Builds the free-cell index of the starting board: every empty cell
+     * but those of the starting snake and food.
+     */
+    private FreeCellSet newFreeCells() {
+        FreeCellSet free = new FreeCellSet(emptyCells);
+        for (int cell : foodCells) {
+            free.remove(cell);
+        }
+        Snake snake = newSnake();
+        for (int i = 0; i < snake.getLength(); i++) {
+            free.remove(snake.getSegment(i));
+        }
+        return free;
+    }
+
+    /**
+     * Returns the static item at the given cell index: a wall, a rock or
+     * an empty cell.
+     *
+     * @param cell the cell index {@code y * cols + x}
+     * @return the static level item in that cell
+     */
+    public LevelItem getItem(int cell) {
+        return grid.get(cell);
+    }
+
+    /**
+     * Returns the first cell at or after the given one whose static item is
+     * a wall or a rock, so callers can walk the static layer without
+     * visiting every empty cell.
+     *
+     * @param cell the cell index to start from
+     * @return the cell index, or {@code rows * cols} if there is none
+     */
+    public int nextStaticCell(int cell) {
+        return grid.nextTaken(cell);
+    }
+
+    /**
+     * Creates the snake a session starts with.
+     *
+     * @return a new snake at the starting position
+     */
+    Snake newSnake() {
+        return new Snake(new Position(startX, startY), startDirection, cols, rows);
+    }
+
+    // getFoodCells is a getter; callers must not modify the returned array
+    int[] getFoodCells() {
+        return foodCells;
+    }
+
+    // getFreeCells is a getter; callers must copy the set before changing it
+    FreeCellSet getFreeCells() {
+        return freeCells;
+    }
+
+    // getEmptyCells is a getter; callers must copy the set before changing it
+    FreeCellSet getEmptyCells() {
+        return emptyCells;
+    }
+}
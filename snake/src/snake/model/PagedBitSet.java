@@ -0,0 +1,129 @@
+package snake.model;
+
+/**
+ * A set of cell indices kept as bits in pages of {@value #PAGE_SIZE} cells
+ * that are only allocated once a cell in them is set, so a set for a huge
+ * level costs one reference per page plus memory around the cells it
+ * actually holds. Used for the snake's occupancy and the food, which cover
+ * a tiny part of a large level; a {@link java.util.BitSet} would allocate
+ * a bit for every cell each time a level is loaded or restarted.
+ */
+final class PagedBitSet {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** The bits of each page, or null for a page that never held a cell. */
+    private final long[][] pages;
+    private int count = 0;
+
+    /**
+     * Creates an empty set able to hold every cell of a level.
+     *
+     * @param cellCount the number of cells in the level ({@code rows * cols})
+     */
+    PagedBitSet(int cellCount) {
+        pages = new long[(cellCount + PAGE_SIZE - 1) >>> PAGE_BITS][];
+    }
+
+    /**
+     * Checks whether a cell is in the set.
+     *
+     * @param cell the cell index
+     * @return true if the cell is set
+     */
+    boolean get(int cell) {
+        long[] page = pages[cell >>> PAGE_BITS];
+        return page != null && (page[(cell & PAGE_MASK) >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Adds a cell to the set.
+     *
+     * @param cell the cell index
+     */
+    void set(int cell) {
+        long[] page = pages[cell >>> PAGE_BITS];
+        if (page == null) {
+            page = new long[PAGE_SIZE >>> 6];
+            pages[cell >>> PAGE_BITS] = page;
+        }
+        int w = (cell & PAGE_MASK) >>> 6;
+        if ((page[w] & (1L << cell)) == 0) {
+            page[w] |= 1L << cell;
+            count++;
+        }
+    }
+
+    /**
+     * Removes a cell from the set. The page is kept, since a snake or food
+     * usually comes back to the same area.
+     *
+     * @param cell the cell index
+     */
+    void clear(int cell) {
+        long[] page = pages[cell >>> PAGE_BITS];
+        if (page == null) return;
+        int w = (cell & PAGE_MASK) >>> 6;
+        if ((page[w] & (1L << cell)) != 0) {
+            page[w] &= ~(1L << cell);
+            count--;
+        }
+    }
+
+    /**
+     * Returns the first cell in the set at or after the given one, skipping
+     * pages that were never written.
+     *
+     * @param from the cell index to start from
+     * @return the cell index, or -1 if there is none
+     */
+    int nextSetBit(int from) {
+        int p = from >>> PAGE_BITS;
+        int w = (from & PAGE_MASK) >>> 6;
+        long mask = -1L << from;
+        for (; p < pages.length; p++, w = 0, mask = -1L) {
+            long[] page = pages[p];
+            if (page == null) continue;
+            for (; w < page.length; w++, mask = -1L) {
+                long word = page[w] & mask;
+                if (word != 0) return (p << PAGE_BITS) + (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the cells in the set.
+     *
+     * @return the cell indices in ascending order
+     */
+    int[] toArray() {
+        int[] cells = new int[count];
+        int n = 0;
+        for (int cell = nextSetBit(0); cell >= 0; cell = nextSetBit(cell + 1)) {
+            cells[n++] = cell;
+        }
+        return cells;
+    }
+
+    // cardinality is a getter
+    int cardinality() {
+        return count;
+    }
+
+    /**
+     * Checks whether another set holds the same cells, however their pages
+     * were allocated.
+     *
+     * @param other the set to compare with
+     * @return true if both sets hold the same cells
+     */
+    boolean sameCells(PagedBitSet other) {
+        if (count != other.count) return false;
+        for (int cell = nextSetBit(0); cell >= 0; cell = nextSetBit(cell + 1)) {
+            if (!other.get(cell)) return false;
+        }
+        return true;
+    }
+}
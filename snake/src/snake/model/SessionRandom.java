@@ -0,0 +1,75 @@
+package snake.model;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A small, seedable and splittable random generator owned by one game
+ * session, so food sequences can be reproduced from a level and a seed.
+ * <p>
+ * Uses the SplitMix64 algorithm, the same one behind
+ * {@link java.util.SplittableRandom}. Instances are not thread-safe; parallel
+ * runs give each session its own generator through {@link #split()}.
+ */
+public class SessionRandom implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    /**
+     * Creates a generator from a seed.
+     *
+     * @param seed the initial seed
+     */
+    public SessionRandom(long seed) {
+        state = seed;
+    }
+
+    /**
+     * Creates the generator of a session playing the given level, so two
+     * levels loaded with the same seed still get different food.
+     *
+     * @param gameID the level being played
+     * @param seed the session seed
+     * @return a generator derived from both
+     */
+    public static SessionRandom forLevel(GameID gameID, long seed) {
+        return new SessionRandom(mix64(seed) ^ mix64(gameID.hashCode() * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Returns the next pseudorandom value.
+     *
+     * @return a uniformly distributed long
+     */
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    /**
+     * Returns the internal state, from which {@link #SessionRandom(long)}
+     * continues the exact same sequence.
+     *
+     * @return the current state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Creates a new, independent generator seeded from this one. Splitting a
+     * generator created from a fixed seed always gives the same children.
+     *
+     * @return a new generator
+     */
+    public SessionRandom split() {
+        return new SessionRandom(nextLong());
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
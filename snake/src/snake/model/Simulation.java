@@ -0,0 +1,187 @@
+package snake.model;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs many independent {@link GameLevel} sessions without any window or
+ * database, stepping them in bulk across all cores. Used for bot evaluation
+ * and balance testing, where ticks per second is what matters.
+ * <p>
+ * Sessions never share mutable state, so the work is split into ranges of
+ * sessions and every range is played to the end on one worker thread.
+ */
+public class Simulation {
+
+    /**
+     * Chooses the direction a simulated snake moves in on each tick.
+     * Each session gets its own controller, so implementations may keep state.
+     */
+    public interface Controller {
+        /**
+         * Returns the direction to move in this tick.
+         *
+         * @param level the session being played
+         * @return the direction to move, or null to keep going straight
+         */
+        Direction nextDirection(GameLevel level);
+    }
+
+    /**
+     * The outcome of a {@link #run} call.
+     */
+    public static class Result {
+        /** The number of sessions simulated. */
+        public final int sessions;
+        /** The number of sessions that ended during or before the run. */
+        public final int endedSessions;
+        /** The total number of ticks stepped over all sessions. */
+        public final long steps;
+        /** The wall-clock duration of the run in nanoseconds. */
+        public final long nanos;
+
+        /**
+         * Creates a result.
+         *
+         * @param sessions the number of sessions simulated
+         * @param endedSessions the number of sessions that have ended
+         * @param steps the total number of ticks stepped
+         * @param nanos the wall-clock duration in nanoseconds
+         */
+        public Result(int sessions, int endedSessions, long steps, long nanos) {
+            this.sessions = sessions;
+            this.endedSessions = endedSessions;
+            this.steps = steps;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns the aggregate throughput of the run.
+         *
+         * @return the number of ticks stepped per second over all sessions
+         */
+        public double stepsPerSecond() {
+            return nanos == 0 ? 0 : steps * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return sessions + " sessions, " + endedSessions + " ended, " + steps + " steps in "
+                    + (nanos / 1_000_000) + " ms (" + Math.round(stepsPerSecond()) + " steps/s)";
+        }
+    }
+
+    private final GameLevel[] sessions;
+    private final Controller[] controllers;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates sessions spread round-robin over the given levels, run on the
+     * common fork-join pool.
+     *
+     * @param templates the levels to play
+     * @param sessionCount the number of sessions to create
+     * @param controllerFactory creates the controller of each session
+     * @param seed the seed all session seeds are split from
+     */
+    public Simulation(List<LevelTemplate> templates, int sessionCount, Supplier<? extends Controller> controllerFactory, long seed) {
+        this(templates, sessionCount, controllerFactory, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates sessions spread round-robin over the given levels. Session
+     * seeds are split from one generator up front, so the same seed gives
+     * the same games however the work is later spread over threads.
+     *
+     * @param templates the levels to play
+     * @param sessionCount the number of sessions to create
+     * @param controllerFactory creates the controller of each session
+     * @param seed the seed all session seeds are split from
+     * @param pool the pool the sessions are stepped on
+     */
+    public Simulation(List<LevelTemplate> templates, int sessionCount, Supplier<? extends Controller> controllerFactory, long seed, ForkJoinPool pool) {
+        if (templates.isEmpty()) throw new IllegalArgumentException("No levels to simulate");
+        this.pool = pool;
+        sessions = new GameLevel[sessionCount];
+        controllers = new Controller[sessionCount];
+        SessionRandom seeds = new SessionRandom(seed);
+        for (int i = 0; i < sessionCount; i++) {
+            sessions[i] = new GameLevel(templates.get(i % templates.size()), seeds.nextLong());
+            controllers[i] = controllerFactory.get();
+        }
+    }
+
+    // getSessionCount is a getter
+    public int getSessionCount() {
+        return sessions.length;
+    }
+
+    // getSession is a getter
+    public GameLevel getSession(int i) {
+        return sessions[i];
+    }
+
+    /**
+     * Steps every session until it ends or has taken the given number of
+     * ticks in this run, using all workers of the pool.
+     *
+     * @param maxTicks the maximum number of ticks per session
+     * @return the aggregate result of the run
+     */
+    public Result run(int maxTicks) {
+        long start = System.nanoTime();
+        long steps = pool.invoke(new StepRange(0, sessions.length, maxTicks, splitThreshold()));
+        long nanos = System.nanoTime() - start;
+
+        int ended = 0;
+        for (GameLevel session : sessions) {
+            if (session.isGameEnded()) ended++;
+        }
+        return new Result(sessions.length, ended, steps, nanos);
+    }
+
+    /**
+     * Returns the range size below which work is no longer split, leaving a
+     * few ranges per worker so uneven session lengths still balance out.
+     */
+    private int splitThreshold() {
+        return Math.max(1, sessions.length / (pool.getParallelism() * 8));
+    }
+
+    /**
+     * Plays a range of sessions, splitting it in halves while it is large.
+     */
+    private class StepRange extends RecursiveTask<Long> {
+        private final int from, to, maxTicks, threshold;
+
+        StepRange(int from, int to, int maxTicks, int threshold) {
+            this.from = from;
+            this.to = to;
+            this.maxTicks = maxTicks;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                StepRange left = new StepRange(from, mid, maxTicks, threshold);
+                left.fork();
+                long right = new StepRange(mid, to, maxTicks, threshold).compute();
+                return right + left.join();
+            }
+            long steps = 0;
+            for (int i = from; i < to; i++) {
+                GameLevel session = sessions[i];
+                Controller controller = controllers[i];
+                for (int t = 0; t < maxTicks && !session.isGameEnded(); t++) {
+                    session.moveSnake(controller.nextDirection(session));
+                    steps++;
+                }
+            }
+            return steps;
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package snake.model;
 
-import java.util.LinkedList;
 
 /**
  * Represents the snake, including its body positions and movement logic.
+ * <p>
+ * Body segments are stored as packed cell indices ({@code y * cols + x}) in a
+ * growable ring buffer, head first, so moving the snake allocates nothing
+ * unless the buffer has to grow.
  */
 public class Snake {
-    private final LinkedList<Position> body;
+    /** Returned by {@link #getNextHeadCell} when the head would leave the level. */
+    public static final int OFF_BOARD = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final PagedBitSet occupied;
+    private final int cols;
+    private final int rows;
+    private int[] cells;
+    private int headIndex = 0;
+    private int length = 0;
     private Direction currentDirection;
+    private boolean selfCollision = false;
 
     /**
      * Constructs a new snake with a given initial position and direction.
@@ -15,22 +29,147 @@ public class Snake {
      *
      * @param initialPosition the starting position of the snake's head
      * @param initialDirection the initial movement direction of the snake
+     * @param cols the number of columns of the level the snake lives in
+     * @param rows the number of rows of the level the snake lives in
      */
-    public Snake(Position initialPosition, Direction initialDirection) {
-        body = new LinkedList<>();
-        body.add(initialPosition);
-        body.add(initialPosition.translate(initialDirection.opposite()));
+    public Snake(Position initialPosition, Direction initialDirection, int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        cells = new int[INITIAL_CAPACITY];
+        occupied = new PagedBitSet(cols * rows);
+        Position tail = initialPosition.translate(initialDirection.opposite());
+        addHead(tail.y * cols + tail.x);
+        addHead(initialPosition.y * cols + initialPosition.x);
         currentDirection = initialDirection;
     }
 
-    // getHead is a getter
+    /**
+     * Constructs a two-segment snake whose cells are recorded in an
+     * occupancy index shared with other snakes, as in an {@link Arena}.
+     * {@link #occupies} and {@link #checkCollision(int)} then answer for
+     * every snake sharing the index.
+     *
+     * @param head the cell of the head
+     * @param tail the cell of the tail, next to the head
+     * @param direction the direction the snake is moving in
+     * @param cols the number of columns of the level the snake lives in
+     * @param rows the number of rows of the level the snake lives in
+     * @param occupied the shared occupancy index of the level
+     */
+    Snake(int head, int tail, Direction direction, int cols, int rows, PagedBitSet occupied) {
+        this.cols = cols;
+        this.rows = rows;
+        this.occupied = occupied;
+        cells = new int[INITIAL_CAPACITY];
+        addHead(tail);
+        addHead(head);
+        currentDirection = direction;
+    }
+
+    /**
+     * Constructs a snake with the given body, as captured in a {@link LevelState}.
+     *
+     * @param body the cells of the body, head first
+     * @param direction the direction the snake is moving in
+     * @param cols the number of columns of the level the snake lives in
+     * @param rows the number of rows of the level the snake lives in
+     */
+    public Snake(int[] body, Direction direction, int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        cells = new int[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(body.length) * 2)];
+        occupied = new PagedBitSet(cols * rows);
+        for (int i = body.length - 1; i >= 0; i--) {
+            if (occupied.get(body[i])) {
+                selfCollision = true;
+            }
+            addHead(body[i]);
+        }
+        currentDirection = direction;
+    }
+
+    /**
+     * Returns the head position as a new object. Prefer {@link #getHeadCell()}
+     * on hot paths.
+     *
+     * @return the position of the head
+     */
     public Position getHead() {
-        return body.getFirst();
+        return new Position(getHeadX(), getHeadY());
+    }
+
+    // getHeadCell is a getter
+    public int getHeadCell() {
+        return cells[headIndex];
+    }
+
+    // getHeadX is a getter
+    public int getHeadX() {
+        return getHeadCell() % cols;
     }
 
-    // getBody is a getter
-    public LinkedList<Position> getBody() {
-        return body;
+    // getHeadY is a getter
+    public int getHeadY() {
+        return getHeadCell() / cols;
+    }
+
+    // getTailCell is a getter
+    public int getTailCell() {
+        return getSegment(length - 1);
+    }
+
+    // getLength is a getter
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the packed cell index of a body segment.
+     *
+     * @param i the segment index, 0 being the head and {@code getLength() - 1} the tail
+     * @return the cell index {@code y * cols + x} of the segment
+     */
+    public int getSegment(int i) {
+        return cells[(headIndex + i) & (cells.length - 1)];
+    }
+
+    /**
+     * Returns the column of a body segment.
+     *
+     * @param i the segment index, 0 being the head
+     * @return the x-coordinate of the segment
+     */
+    public int getSegmentX(int i) {
+        return getSegment(i) % cols;
+    }
+
+    /**
+     * Returns the row of a body segment.
+     *
+     * @param i the segment index, 0 being the head
+     * @return the y-coordinate of the segment
+     */
+    public int getSegmentY(int i) {
+        return getSegment(i) / cols;
+    }
+
+    /**
+     * Returns the cell the head would enter when moving in the given direction,
+     * honouring the rule that the snake cannot reverse onto itself.
+     * Levels need not have a border wall, so a move off any edge gives
+     * {@link #OFF_BOARD} instead of wrapping to the next row or leaving
+     * the cell range.
+     *
+     * @param direction the requested direction, or null to keep the current one
+     * @return the cell index of the next head position, or {@link #OFF_BOARD}
+     */
+    public int getNextHeadCell(Direction direction) {
+        Direction d = effectiveDirection(direction);
+        int head = getHeadCell();
+        int x = head % cols + d.x;
+        int y = head / cols + d.y;
+        if (x < 0 || x >= cols || y < 0 || y >= rows) return OFF_BOARD;
+        return head + d.y * cols + d.x;
     }
 
     /**
@@ -42,29 +181,102 @@ public class Snake {
      * @param grow true if the snake should grow this turn, false otherwise
      */
     public void move(Direction direction, boolean grow) {
-        if (direction != null && !direction.isOpposite(currentDirection)) {
-            currentDirection = direction;
+        // The tail leaves its cell before the head arrives, so chasing the tail is not a collision
+        if (!grow) {
+            vacateTail();
         }
-        Position newHead = getHead().translate(currentDirection);
-        body.addFirst(newHead);
+        advanceHead(direction);
+    }
 
-        if (!grow) {
-            body.removeLast();
+    /**
+     * Removes the last segment. The first half of a move that does not
+     * grow; an {@link Arena} vacates every tail before moving any head.
+     */
+    void vacateTail() {
+        occupied.clear(getTailCell());
+        length--;
+    }
+
+    /**
+     * Adds a head segment in the given direction, the second half of a move.
+     * A move off the level counts as a collision and leaves the head where
+     * it was.
+     *
+     * @param direction the direction to move, or null to keep going straight
+     */
+    void advanceHead(Direction direction) {
+        int newHead = getNextHeadCell(direction);
+        currentDirection = effectiveDirection(direction);
+        if (newHead == OFF_BOARD) {
+            selfCollision = true;
+            return;
+        }
+        if (occupied.get(newHead)) {
+            selfCollision = true;
         }
+        addHead(newHead);
     }
 
     /**
      * Checks if the snake's body (excluding the head) occupies the given position.
+     * Runs in constant time using the occupancy index kept up to date by {@link #move}.
      *
      * @param position the position to check for collision
      * @return true if the snake's body occupies that position, false otherwise
      */
     public boolean checkCollision(Position position) {
-        return body.stream().skip(1).anyMatch(segment -> segment.equals(position));
+        return checkCollision(position.y * cols + position.x);
+    }
+
+    /**
+     * Checks if the snake's body (excluding the head) occupies the given cell.
+     *
+     * @param cell the cell index {@code y * cols + x} to check
+     * @return true if the snake's body occupies that cell, false otherwise
+     */
+    public boolean checkCollision(int cell) {
+        if (cell == getHeadCell()) return selfCollision;
+        return occupied.get(cell);
+    }
+
+    /**
+     * Checks if any segment of the snake, including the head, occupies the given cell.
+     *
+     * @param cell the cell index {@code y * cols + x} to check
+     * @return true if the snake covers that cell, false otherwise
+     */
+    public boolean occupies(int cell) {
+        return occupied.get(cell);
     }
 
     // getCurrentDirection is a getter
     public Direction getCurrentDirection() {
         return currentDirection;
     }
+
+    private Direction effectiveDirection(Direction direction) {
+        if (direction != null && !direction.isOpposite(currentDirection)) {
+            return direction;
+        }
+        return currentDirection;
+    }
+
+    private void addHead(int cell) {
+        if (length == cells.length) {
+            growBuffer();
+        }
+        headIndex = (headIndex - 1) & (cells.length - 1);
+        cells[headIndex] = cell;
+        length++;
+        occupied.set(cell);
+    }
+
+    private void growBuffer() {
+        int[] larger = new int[cells.length * 2];
+        for (int i = 0; i < length; i++) {
+            larger[i] = getSegment(i);
+        }
+        cells = larger;
+        headIndex = 0;
+    }
 }
@@ -0,0 +1,200 @@
+package snake.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import snake.model.Direction;
+import snake.model.GameID;
+import snake.model.GameLevel;
+import snake.model.LevelTemplate;
+
+/**
+ * A recorded game that can be re-simulated at full CPU speed, used to
+ * verify high scores and to reproduce games exactly.
+ * <p>
+ * File layout (big-endian), as written by {@link ReplayWriter}:
+ * <pre>
+ *   int    magic "SNKR"
+ *   short  version
+ *   long   seed
+ *   int    tick count
+ *   int    length of the move stream in bytes
+ *   int    keyframe interval in ticks
+ *   int    level
+ *   short  length of the difficulty, then its UTF-8 bytes
+ *   ...    move stream: varints of (run length &lt;&lt; 2 | direction ordinal),
+ *          where a zero varint is followed by a varint payload length and
+ *          a keyframe (tick, score, speed, won, RNG state, direction, snake,
+ *          food)
+ *   int    keyframe count, then per keyframe: int tick, int offset in the move stream
+ * </pre>
+ */
+public class Replay {
+
+    /** The level that was played. */
+    public final GameID gameID;
+    /** The seed the level was loaded with. */
+    public final long seed;
+    /** The number of recorded ticks. */
+    public final int ticks;
+    /** The number of ticks between two keyframes. */
+    public final int keyframeInterval;
+    private final ByteBuffer moves;
+    private final int[] keyframeTicks;
+    private final int[] keyframeOffsets;
+
+    private Replay(GameID gameID, long seed, int ticks, int keyframeInterval, ByteBuffer moves,
+            int[] keyframeTicks, int[] keyframeOffsets) {
+        this.gameID = gameID;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.keyframeInterval = keyframeInterval;
+        this.moves = moves;
+        this.keyframeTicks = keyframeTicks;
+        this.keyframeOffsets = keyframeOffsets;
+    }
+
+    /**
+     * Reads a replay file.
+     *
+     * @param file the file to read
+     * @return the replay
+     * @throws IOException if the file cannot be read or is not a replay
+     */
+    public static Replay read(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < ReplayWriter.MOVES_LENGTH_OFFSET + 4 || in.getInt() != ReplayWriter.MAGIC) {
+            throw new IOException("Not a replay file: " + file);
+        }
+        short version = in.getShort();
+        if (version != ReplayWriter.VERSION) {
+            throw new IOException("Unsupported replay version " + version + ": " + file);
+        }
+        try {
+            long seed = in.getLong();
+            int ticks = in.getInt();
+            int movesLength = in.getInt();
+            int keyframeInterval = in.getInt();
+            int level = in.getInt();
+            byte[] difficulty = new byte[in.getShort()];
+            in.get(difficulty);
+            ByteBuffer moves = in.slice(in.position(), movesLength);
+
+            in.position(in.position() + movesLength);
+            int[] keyframeTicks = new int[in.getInt()];
+            int[] keyframeOffsets = new int[keyframeTicks.length];
+            for (int i = 0; i < keyframeTicks.length; i++) {
+                keyframeTicks[i] = in.getInt();
+                keyframeOffsets[i] = in.getInt();
+            }
+            GameID id = new GameID(new String(difficulty, StandardCharsets.UTF_8), level);
+            return new Replay(id, seed, ticks, keyframeInterval, moves, keyframeTicks, keyframeOffsets);
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated replay file: " + file, e);
+        }
+    }
+
+    // getKeyframeCount is a getter
+    public int getKeyframeCount() {
+        return keyframeTicks.length;
+    }
+
+    /**
+     * Re-simulates the whole game on the given level.
+     *
+     * @param template the level the replay was recorded on
+     * @return the level in the state the recorded game ended in
+     * @throws IllegalArgumentException if the template is for another level
+     */
+    public GameLevel play(LevelTemplate template) {
+        return seek(template, ticks);
+    }
+
+    /**
+     * Returns the game as it was after the given number of ticks. Restores
+     * the nearest keyframe at or before that tick and simulates the rest,
+     * so at most {@link #keyframeInterval} ticks are simulated.
+     *
+     * @param template the level the replay was recorded on
+     * @param tick the number of ticks to have played, clamped to the recording
+     * @return the level in the state after that tick
+     * @throws IllegalArgumentException if the template is for another level
+     */
+    public GameLevel seek(LevelTemplate template, int tick) {
+        return play(template, tick, tick, null);
+    }
+
+    /**
+     * Plays part of the game tick by tick, as for rendering it. Starts
+     * like {@link #seek} at {@code fromTick}, then hands the level to
+     * {@code onTick} in that state and again after every further tick up
+     * to {@code toTick}. The same level object is handed over every time
+     * and changes once {@code onTick} returns.
+     *
+     * @param template the level the replay was recorded on
+     * @param fromTick the first tick to hand over, clamped to the recording
+     * @param toTick the last tick to hand over, clamped to the recording
+     * @param onTick called with the level at every tick, or null
+     * @return the level in the state after {@code toTick}
+     * @throws IllegalArgumentException if the template is for another level
+     */
+    public GameLevel play(LevelTemplate template, int fromTick, int toTick, Consumer<GameLevel> onTick) {
+        if (!template.gameID.equals(gameID)) {
+            throw new IllegalArgumentException("Replay was recorded on another level");
+        }
+        fromTick = Math.max(0, Math.min(fromTick, ticks));
+        toTick = Math.max(fromTick, Math.min(toTick, ticks));
+
+        ByteBuffer in = moves.duplicate();
+        int k = Arrays.binarySearch(keyframeTicks, fromTick);
+        if (k < 0) k = -k - 2;
+        if (k < 0) {
+            return advance(new GameLevel(template, seed), in, fromTick, toTick - fromTick, onTick);
+        }
+
+        in.position(keyframeOffsets[k]);
+        Varint.get(in);
+        int payloadLength = Varint.get(in);
+        int payloadEnd = in.position() + payloadLength;
+        int keyframeTick = Varint.get(in);
+        GameLevel level = new GameLevel(template, seed, ReplayCodec.getState(in));
+        in.position(payloadEnd);
+        return advance(level, in, fromTick - keyframeTick, toTick - fromTick, onTick);
+    }
+
+    /**
+     * Plays ticks from the move stream, skipping keyframes.
+     *
+     * @param level the level to play on
+     * @param in the move stream, positioned at a run or keyframe
+     * @param skip the number of ticks to play before handing the level over
+     * @param ticks the number of ticks to play after that
+     * @param onTick called with the level after the skipped ticks and after every tick after them, or null
+     * @return the given level
+     */
+    private static GameLevel advance(GameLevel level, ByteBuffer in, int skip, int ticks, Consumer<GameLevel> onTick) {
+        if (onTick != null && skip == 0) onTick.accept(level);
+        int played = 0;
+        int total = skip + ticks;
+        while (played < total && in.hasRemaining()) {
+            int run = Varint.get(in);
+            if (run == 0) {
+                int payloadLength = Varint.get(in);
+                in.position(in.position() + payloadLength);
+                continue;
+            }
+            Direction d = ReplayCodec.direction(run & 3);
+            int n = Math.min(run >>> 2, total - played);
+            for (int i = 0; i < n; i++) {
+                level.moveSnake(d);
+                played++;
+                if (onTick != null && played >= skip) onTick.accept(level);
+            }
+        }
+        return level;
+    }
+}
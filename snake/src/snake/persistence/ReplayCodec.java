@@ -0,0 +1,82 @@
+package snake.persistence;
+
+import java.nio.ByteBuffer;
+import snake.model.Direction;
+import snake.model.LevelState;
+
+/**
+ * Encoding helpers shared by {@link ReplayWriter} and {@link Replay}.
+ */
+final class ReplayCodec {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private ReplayCodec() {
+    }
+
+    /**
+     * Returns the direction stored under an ordinal.
+     *
+     * @param ordinal the ordinal of the direction
+     * @return the direction
+     */
+    static Direction direction(int ordinal) {
+        return DIRECTIONS[ordinal];
+    }
+
+    /**
+     * Returns an upper bound on the encoded size of a keyframe.
+     *
+     * @param state the state to encode
+     * @return the maximum number of bytes {@link #putState} writes
+     */
+    static int maxStateSize(LevelState state) {
+        return Varint.MAX_BYTES * (5 + state.getBodyLength() + state.getFoodCount()) + 8 + 2;
+    }
+
+    /**
+     * Writes a keyframe: the tick it was taken after and the level state.
+     *
+     * @param out the buffer to write to
+     * @param tick the number of ticks played when the state was taken
+     * @param state the state to write
+     */
+    static void putState(ByteBuffer out, int tick, LevelState state) {
+        Varint.put(out, tick);
+        Varint.put(out, state.score);
+        Varint.put(out, state.speed);
+        out.put((byte) (state.won ? 1 : 0));
+        out.putLong(state.randomState);
+        out.put((byte) state.direction.ordinal());
+        Varint.put(out, state.getBodyLength());
+        for (int i = 0; i < state.getBodyLength(); i++) {
+            Varint.put(out, state.getBodyCell(i));
+        }
+        Varint.put(out, state.getFoodCount());
+        for (int i = 0; i < state.getFoodCount(); i++) {
+            Varint.put(out, state.getFoodCell(i));
+        }
+    }
+
+    /**
+     * Reads the level state of a keyframe written by {@link #putState}.
+     *
+     * @param in the buffer to read from, positioned after the tick
+     * @return the state read
+     */
+    static LevelState getState(ByteBuffer in) {
+        int score = Varint.get(in);
+        int speed = Varint.get(in);
+        boolean won = in.get() != 0;
+        long randomState = in.getLong();
+        Direction direction = direction(in.get());
+        int[] body = new int[Varint.get(in)];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = Varint.get(in);
+        }
+        int[] food = new int[Varint.get(in)];
+        for (int i = 0; i < food.length; i++) {
+            food[i] = Varint.get(in);
+        }
+        return new LevelState(score, speed, won, randomState, direction, body, food);
+    }
+}
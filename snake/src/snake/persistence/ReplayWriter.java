@@ -0,0 +1,201 @@
+package snake.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import snake.model.Direction;
+import snake.model.GameID;
+import snake.model.GameLevel;
+import snake.model.LevelState;
+
+/**
+ * Records a game as a compact binary replay: the level, the seed and the
+ * direction the snake moved in on every tick.
+ * <p>
+ * Directions are run-length encoded, each run stored as one varint of
+ * {@code length << 2 | direction}, so a straight line of any length costs a
+ * few bytes. Every {@code keyframeInterval} ticks a snapshot of the level is
+ * embedded so that {@link Replay#seek} never has to simulate more than that
+ * many ticks. A keyframe holds the snake, the food and a few counters, so
+ * its size grows with the snake rather than with the level. The file is
+ * written through a memory-mapped buffer, so recording any other tick is a
+ * comparison and, at most, a few memory stores.
+ * See {@link Replay} for the layout.
+ */
+public class ReplayWriter implements Closeable {
+    static final int MAGIC = 0x534e4b52; // "SNKR"
+    static final short VERSION = 3;
+    static final int TICKS_OFFSET = 4 + 2 + 8;
+    static final int MOVES_LENGTH_OFFSET = TICKS_OFFSET + 4;
+
+    /** The default number of ticks between two keyframes. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 256;
+
+    private static final int INITIAL_MAPPING = 64 * 1024;
+    private static final int MAX_RUN = Integer.MAX_VALUE >>> 2;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private final int movesStart;
+    private final int keyframeInterval;
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private int[] keyframeTicks = new int[16];
+    private int[] keyframeOffsets = new int[16];
+    private int keyframes = 0;
+    private Direction runDirection = null;
+    private int runLength = 0;
+    private int ticks = 0;
+
+    /**
+     * Creates a replay file with the default keyframe interval, replacing
+     * any existing file.
+     *
+     * @param file the file to write
+     * @param gameID the level being recorded
+     * @param seed the seed the level was loaded with
+     * @throws IOException if the file cannot be created
+     */
+    public ReplayWriter(Path file, GameID gameID, long seed) throws IOException {
+        this(file, gameID, seed, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Creates a replay file, replacing any existing file.
+     *
+     * @param file the file to write
+     * @param gameID the level being recorded
+     * @param seed the seed the level was loaded with
+     * @param keyframeInterval the number of ticks between two keyframes
+     * @throws IOException if the file cannot be created
+     */
+    public ReplayWriter(Path file, GameID gameID, long seed, int keyframeInterval) throws IOException {
+        if (keyframeInterval < 1) throw new IllegalArgumentException("Keyframe interval must be positive");
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAPPING);
+
+        byte[] difficulty = gameID.difficulty.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putLong(seed);
+        buffer.putInt(0);   // tick count, written on close
+        buffer.putInt(0);   // length of the move stream, written on close
+        buffer.putInt(keyframeInterval);
+        buffer.putInt(gameID.level);
+        buffer.putShort((short) difficulty.length);
+        buffer.put(difficulty);
+        movesStart = buffer.position();
+    }
+
+    /**
+     * Records one tick in which the snake moved in the given direction, and
+     * a keyframe of the level if one is due.
+     *
+     * @param direction the direction the snake actually moved in
+     * @param level the level after the move
+     * @throws IOException if the file cannot be extended
+     */
+    public void record(Direction direction, GameLevel level) throws IOException {
+        ticks++;
+        if (direction == runDirection && runLength < MAX_RUN) {
+            runLength++;
+        } else {
+            flushRun();
+            runDirection = direction;
+            runLength = 1;
+        }
+        if (ticks % keyframeInterval == 0) {
+            writeKeyframe(level.captureState());
+        }
+    }
+
+    // getTicks is a getter
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Writes the last run, the keyframe index and the header totals and
+     * closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushRun();
+            int movesEnd = buffer.position();
+            ensureCapacity(4 + 8 * keyframes);
+            buffer.putInt(keyframes);
+            for (int i = 0; i < keyframes; i++) {
+                buffer.putInt(keyframeTicks[i]);
+                buffer.putInt(keyframeOffsets[i]);
+            }
+            int end = buffer.position();
+            buffer.putInt(TICKS_OFFSET, ticks);
+            buffer.putInt(MOVES_LENGTH_OFFSET, movesEnd - movesStart);
+            buffer.force();
+            try {
+                channel.truncate(end);
+            } catch (IOException e) {
+                // Some platforms refuse to shrink a mapped file; readers rely on the header length
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a keyframe into the move stream as a zero varint (no run has
+     * length zero), the payload length and the payload, and adds it to the
+     * index.
+     *
+     * @param state the state of the level after the current tick
+     * @throws IOException if the file cannot be extended
+     */
+    private void writeKeyframe(LevelState state) throws IOException {
+        flushRun();
+        int maxSize = ReplayCodec.maxStateSize(state);
+        if (scratch.capacity() < maxSize) {
+            scratch = ByteBuffer.allocate(Math.max(maxSize, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        ReplayCodec.putState(scratch, ticks, state);
+        scratch.flip();
+
+        ensureCapacity(2 * Varint.MAX_BYTES + scratch.remaining());
+        if (keyframes == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframes * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframes * 2);
+        }
+        keyframeTicks[keyframes] = ticks;
+        keyframeOffsets[keyframes] = buffer.position() - movesStart;
+        keyframes++;
+
+        Varint.put(buffer, 0);
+        Varint.put(buffer, scratch.remaining());
+        buffer.put(scratch);
+    }
+
+    private void flushRun() throws IOException {
+        if (runLength == 0) return;
+        ensureCapacity(Varint.MAX_BYTES);
+        Varint.put(buffer, runLength << 2 | runDirection.ordinal());
+        runLength = 0;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        int position = buffer.position();
+        long size = Math.max((long) buffer.capacity() * 2, (long) position + bytes);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.position(position);
+    }
+}
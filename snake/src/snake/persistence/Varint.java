@@ -0,0 +1,47 @@
+package snake.persistence;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned LEB128 varints, the number encoding of replay files and of the
+ * spectator feed: 7 bits per byte, low bits first, with the top bit set on
+ * every byte but the last. Values below 128 take one byte, any int at most
+ * {@value #MAX_BYTES}.
+ */
+public final class Varint {
+    /** The most bytes one varint takes. */
+    public static final int MAX_BYTES = 5;
+
+    private Varint() {
+    }
+
+    /**
+     * Writes an int as a varint. Negative values are written as their
+     * unsigned bits and take {@value #MAX_BYTES} bytes.
+     *
+     * @param out the buffer to write to
+     * @param value the value to write
+     */
+    public static void put(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads a varint written by {@link #put}.
+     *
+     * @param in the buffer to read from
+     * @return the value read
+     */
+    public static int get(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
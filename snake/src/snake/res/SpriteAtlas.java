@@ -0,0 +1,129 @@
+package snake.res;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.imageio.ImageIO;
+
+/**
+ * All sprites of the game packed into one image, with an index of where
+ * each sprite is, so startup reads and decodes a single file.
+ * <p>
+ * The index is a text file with one sprite per line: a name, then the x,
+ * y, width and height of the sprite in pixels. Lines starting with
+ * {@code #} are comments. Sprites are sub-images sharing the atlas pixels.
+ * <p>
+ * {@link #preload()} starts decoding the default atlas on a background
+ * thread, so it can overlap with reading the levels and opening the
+ * database; {@link #getDefault()} then waits for it.
+ */
+public class SpriteAtlas {
+    /** The default atlas image. */
+    public static final String DEFAULT_IMAGE = "snake/res/tiles.png";
+    /** The index of the default atlas. */
+    public static final String DEFAULT_INDEX = "snake/res/tiles.txt";
+
+    private static CompletableFuture<SpriteAtlas> defaultAtlas = null;
+
+    private final BufferedImage image;
+    private final HashMap<String, BufferedImage> sprites = new HashMap<>();
+
+    private SpriteAtlas(BufferedImage image) {
+        this.image = image;
+    }
+
+    /**
+     * Reads an atlas and its index.
+     *
+     * @param imageName the resource name of the atlas image
+     * @param indexName the resource name of the index
+     * @return the atlas
+     * @throws IOException if either resource is missing or malformed
+     */
+    public static SpriteAtlas load(String imageName, String indexName) throws IOException {
+        // Decode from memory rather than through a temporary cache file
+        ImageIO.setUseCache(false);
+        BufferedImage image;
+        try (InputStream in = ResourceLoader.loadResource(imageName)) {
+            if (in == null) throw new IOException("Missing resource: " + imageName);
+            image = ImageIO.read(in);
+        }
+        if (image == null) throw new IOException("Not an image: " + imageName);
+
+        SpriteAtlas atlas = new SpriteAtlas(image);
+        InputStream indexStream = ResourceLoader.loadResource(indexName);
+        if (indexStream == null) throw new IOException("Missing resource: " + indexName);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(indexStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split("\\s+");
+                try {
+                    atlas.sprites.put(f[0], image.getSubimage(Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+                            Integer.parseInt(f[3]), Integer.parseInt(f[4])));
+                } catch (RuntimeException e) {
+                    throw new IOException("Bad sprite in " + indexName + ": " + line, e);
+                }
+            }
+        }
+        return atlas;
+    }
+
+    /**
+     * Starts loading the default atlas in the background, if it is not
+     * loading or loaded already.
+     */
+    public static synchronized void preload() {
+        if (defaultAtlas != null) return;
+        defaultAtlas = CompletableFuture.supplyAsync(() -> {
+            try {
+                return load(DEFAULT_IMAGE, DEFAULT_INDEX);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the default atlas, waiting for {@link #preload()} to finish
+     * or loading it now if it was never started.
+     *
+     * @return the default atlas
+     * @throws IOException if the atlas cannot be loaded
+     */
+    public static SpriteAtlas getDefault() throws IOException {
+        preload();
+        try {
+            return defaultAtlas.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException u) throw u.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a sprite.
+     *
+     * @param name the name of the sprite in the index
+     * @return the sprite, sharing the pixels of the atlas
+     * @throws IOException if the atlas has no sprite of that name
+     */
+    public BufferedImage getSprite(String name) throws IOException {
+        BufferedImage sprite = sprites.get(name);
+        if (sprite == null) throw new IOException("No sprite named " + name);
+        return sprite;
+    }
+
+    // getImage is a getter
+    public BufferedImage getImage() {
+        return image;
+    }
+}
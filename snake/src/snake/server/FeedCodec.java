@@ -0,0 +1,142 @@
+package snake.server;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import snake.model.GameLevel;
+import snake.model.LevelItem;
+import snake.model.LevelTemplate;
+import snake.persistence.Varint;
+
+/**
+ * The binary format of the spectator feed, shared by {@link SpectatorFeed}
+ * and {@link SpectatorView}.
+ * <p>
+ * Every frame is an int length followed by that many bytes. All other
+ * numbers are unsigned LEB128 varints ({@link Varint}):
+ * <pre>
+ *   byte    type: DELTA or KEYFRAME
+ *   varint  tick
+ *   varint  score
+ *   DELTA:     varint change count, then per change: varint cell, byte item code
+ *   KEYFRAME:  varint rows, varint cols, then runs until every cell is covered:
+ *              varint run length, byte item code
+ * </pre>
+ */
+final class FeedCodec {
+    static final byte DELTA = 0;
+    static final byte KEYFRAME = 1;
+
+    private FeedCodec() {
+    }
+
+    /**
+     * Encodes the cells the last move changed.
+     *
+     * @param level the level after the move
+     * @param tick the tick number
+     * @return a frame ready to send, length prefix included
+     */
+    static ByteBuffer delta(GameLevel level, int tick) {
+        int changes = level.getChangedCount();
+        ByteBuffer out = ByteBuffer.allocate(4 + 1 + 3 * Varint.MAX_BYTES + changes * (Varint.MAX_BYTES + 1));
+        out.position(4);
+        out.put(DELTA);
+        Varint.put(out, tick);
+        Varint.put(out, level.getScore());
+        Varint.put(out, changes);
+        for (int i = 0; i < changes; i++) {
+            int cell = level.getChangedCell(i);
+            Varint.put(out, cell);
+            out.put(level.getItem(cell).code());
+        }
+        return finish(out);
+    }
+
+    /**
+     * Encodes the whole board, run-length encoded.
+     * <p>
+     * Only the cells that are not empty are looked at: the walls and rocks
+     * of the template, the snake and the food, merged in cell order. The
+     * empty cells between them become one run each, so the frame and the
+     * work to build it grow with what is on the board, not with its area.
+     *
+     * @param level the level
+     * @param tick the tick number
+     * @return a frame ready to send, length prefix included
+     */
+    static ByteBuffer keyframe(GameLevel level, int tick) {
+        LevelTemplate template = level.getTemplate();
+        int cells = level.rows * level.cols;
+        int[] food = level.getFoodCells();
+        int[] moving = Arrays.copyOf(food, food.length + level.snake.getLength());
+        for (int i = 0; i < level.snake.getLength(); i++) {
+            moving[food.length + i] = level.snake.getSegment(i);
+        }
+        Arrays.sort(moving);
+
+        Runs runs = new Runs(16);
+        int cell = 0;
+        int next = 0;
+        int wall = template.nextStaticCell(0);
+        while (true) {
+            // A head that hit a wall or the body shares its cell, which is only encoded once
+            while (next < moving.length && moving[next] < cell) next++;
+            if (wall < cell) wall = template.nextStaticCell(cell);
+            int taken = (next < moving.length) ? Math.min(wall, moving[next]) : wall;
+            if (taken > cell) runs.add(LevelItem.EMPTY.code(), taken - cell);
+            if (taken == cells) break;
+            runs.add(level.getItem(taken).code(), 1);
+            cell = taken + 1;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(4 + 1 + 4 * Varint.MAX_BYTES + runs.count * (Varint.MAX_BYTES + 1));
+        out.position(4);
+        out.put(KEYFRAME);
+        Varint.put(out, tick);
+        Varint.put(out, level.getScore());
+        Varint.put(out, level.rows);
+        Varint.put(out, level.cols);
+        for (int i = 0; i < runs.count; i++) {
+            Varint.put(out, runs.lengths[i]);
+            out.put(runs.codes[i]);
+        }
+        return finish(out);
+    }
+
+    /**
+     * Writes the length prefix and trims the buffer to the frame.
+     */
+    private static ByteBuffer finish(ByteBuffer out) {
+        out.putInt(0, out.position() - 4);
+        out.flip();
+        return out.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * The runs of a keyframe, merged as they are added.
+     */
+    private static final class Runs {
+        int[] lengths;
+        byte[] codes;
+        int count = 0;
+
+        Runs(int capacity) {
+            lengths = new int[capacity];
+            codes = new byte[capacity];
+        }
+
+        void add(byte code, int length) {
+            if (count > 0 && codes[count - 1] == code) {
+                lengths[count - 1] += length;
+                return;
+            }
+            if (count == lengths.length) {
+                lengths = Arrays.copyOf(lengths, count * 2);
+                codes = Arrays.copyOf(codes, count * 2);
+            }
+            lengths[count] = length;
+            codes[count] = code;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package snake.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import snake.GameLoop;
+import snake.metrics.TickMetrics;
+import snake.model.GameID;
+import snake.model.LevelReader;
+import snake.model.LevelTemplate;
+import snake.model.SessionRandom;
+
+/**
+ * Hosts many players from one JVM over a line-based TCP protocol.
+ * <p>
+ * Levels are parsed once and shared by every session. Each connection gets
+ * its own {@link snake.model.GameLevel} and is served by virtual threads,
+ * while a single {@link GameLoop} steps all sessions on one shared tick, so
+ * the cost of a tick grows with the number of sessions and not with the
+ * number of threads. Tick timings are recorded in {@link TickMetrics} and
+ * registered over JMX like the desktop game's.
+ * <p>
+ * Start with {@code java -cp build/classes snake.server.GameServer [port] [tick ms]}
+ * and play with {@code PLAY EASY 1}, then {@code U}, {@code D}, {@code L}
+ * or {@code R} lines; {@code STATS} returns the server's load.
+ */
+public class GameServer {
+    /** The port used when none is given. */
+    public static final int DEFAULT_PORT = 7777;
+    /** The tick period in milliseconds used when none is given. */
+    public static final int DEFAULT_TICK_MILLIS = 100;
+
+    final TickMetrics metrics = new TickMetrics();
+    private final HashMap<GameID, LevelTemplate> templates = new HashMap<>();
+    private final SessionRandom seeds = new SessionRandom(System.nanoTime());
+    private final Queue<ServerSession> joining = new ConcurrentLinkedQueue<>();
+    /** The sessions being ticked; only touched by the tick thread. */
+    private final ArrayList<ServerSession> sessions = new ArrayList<>();
+    private final ServerSocket serverSocket;
+    private final GameLoop loop;
+    private volatile int sessionCount = 0;
+    private long tick = 0;
+
+    /**
+     * Creates a server on the loopback interface and parses the levels.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param tickMillis the tick period in milliseconds
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port, int tickMillis) throws IOException {
+        for (LevelTemplate template : LevelReader.readDefaultLevels(1)) {
+            templates.put(template.gameID, template);
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        loop = new GameLoop(new GameLoop.Listener() {
+            @Override
+            public boolean tick() {
+                tickAll();
+                return true;
+            }
+
+            @Override
+            public void secondElapsed(int seconds) {
+                // The server has no clock to show
+            }
+        }, () -> tickMillis * 1_000_000L, GameLoop.Policy.SKIP, metrics.jitter);
+    }
+
+    // getPort is a getter
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts ticking and accepts connections until the server is closed.
+     * Blocks the calling thread.
+     */
+    public void serve() {
+        metrics.register();
+        loop.start();
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                ServerSession session = new ServerSession(this, socket);
+                session.start();
+                joining.add(session);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.out.println("accept error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections and ticking.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("close error: " + e.getMessage());
+        }
+        loop.shutdown();
+    }
+
+    /**
+     * Returns a one-line summary of the server's load.
+     *
+     * @return the session count, cores and tick timings
+     */
+    String stats() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return "STATS sessions=" + sessionCount + " cores=" + cores
+                + " sessionsPerCore=" + (sessionCount / cores)
+                + " tickP50us=" + metrics.step.getP50Nanos() / 1000
+                + " tickP99us=" + metrics.step.getP99Nanos() / 1000
+                + " tickMaxUs=" + metrics.step.getMaxNanos() / 1000
+                + " jitterP99us=" + metrics.jitter.getP99Nanos() / 1000
+                + " inputP99us=" + metrics.input.getP99Nanos() / 1000;
+    }
+
+    LevelTemplate getTemplate(GameID id) {
+        return templates.get(id);
+    }
+
+    /**
+     * Returns a seed for a new game. Called from session threads.
+     */
+    synchronized long nextSeed() {
+        return seeds.nextLong();
+    }
+
+    /**
+     * Steps every session once, after taking in new sessions and dropping
+     * closed ones. Runs on the tick thread.
+     */
+    private void tickAll() {
+        long start = System.nanoTime();
+        tick++;
+        for (ServerSession s; (s = joining.poll()) != null; ) {
+            sessions.add(s);
+        }
+        boolean stepped = false;
+        for (int i = sessions.size() - 1; i >= 0; i--) {
+            ServerSession s = sessions.get(i);
+            if (s.isClosed()) {
+                sessions.set(i, sessions.get(sessions.size() - 1));
+                sessions.remove(sessions.size() - 1);
+                continue;
+            }
+            stepped |= s.tick(tick);
+        }
+        sessionCount = sessions.size();
+        if (stepped) metrics.step.recordSince(start);
+    }
+
+    /**
+     * Runs a server.
+     *
+     * @param args the port and the tick period in milliseconds, both optional
+     */
+    public static void main(String[] args) {
+        try {
+            int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+            int tickMillis = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_TICK_MILLIS;
+            GameServer server = new GameServer(port, tickMillis);
+            server.metrics.startDumpIfRequested();
+            System.out.println("Snake server listening on port " + server.getPort());
+            server.serve();
+        } catch (IOException | NumberFormatException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
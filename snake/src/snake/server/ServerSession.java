@@ -0,0 +1,206 @@
+package snake.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import snake.InputQueue;
+import snake.model.Direction;
+import snake.model.GameID;
+import snake.model.GameLevel;
+import snake.model.LevelTemplate;
+
+/**
+ * One connected player. The connection is served by two virtual threads,
+ * one reading commands and one writing tick updates, so blocking socket
+ * calls never hold up the shared tick. The level itself is only ever
+ * stepped by the server's tick thread.
+ */
+class ServerSession {
+
+    /**
+     * The state of a session after one tick, published by the tick thread
+     * and written out by the session's writer thread.
+     */
+    private static class Status {
+        final long tick;
+        final int score, headX, headY;
+        final boolean ended, won;
+
+        Status(long tick, GameLevel level) {
+            this.tick = tick;
+            score = level.getScore();
+            headX = level.snake.getHeadX();
+            headY = level.snake.getHeadY();
+            ended = level.isGameEnded();
+            won = level.isGameWon();
+        }
+    }
+
+    private final GameServer server;
+    private final Socket socket;
+    private final InputQueue inputs = new InputQueue(16);
+    private final Queue<String> replies = new ConcurrentLinkedQueue<>();
+    /** A level requested by the player, picked up by the tick thread. */
+    private final AtomicReference<GameLevel> requestedLevel = new AtomicReference<>();
+    /** The level being played; only touched by the tick thread. */
+    private GameLevel level = null;
+    private volatile Status status = null;
+    private volatile boolean closed = false;
+    private Thread writer;
+
+    ServerSession(GameServer server, Socket socket) {
+        this.server = server;
+        this.socket = socket;
+    }
+
+    /**
+     * Starts the reader and writer threads of this session.
+     */
+    void start() {
+        writer = Thread.ofVirtual().name("snake-session-writer").start(this::writeLoop);
+        Thread.ofVirtual().name("snake-session-reader").start(this::readLoop);
+    }
+
+    // isClosed is a getter
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Advances this session by one tick. Called on the tick thread only.
+     *
+     * @param tick the number of the server tick
+     * @return true if a level was stepped
+     */
+    boolean tick(long tick) {
+        GameLevel requested = requestedLevel.getAndSet(null);
+        if (requested != null) {
+            level = requested;
+        }
+        if (level == null) return false;
+
+        level.moveSnake(inputs.takeValid(level.snake.getCurrentDirection(), server.metrics.input));
+        status = new Status(tick, level);
+        if (level.isGameEnded()) {
+            level = null;
+        }
+        LockSupport.unpark(writer);
+        return true;
+    }
+
+    /**
+     * Reads commands until the player disconnects. Commands are lines of
+     * {@code PLAY <difficulty> <level> [seed]}, {@code U}, {@code D},
+     * {@code L}, {@code R}, {@code STATS} or {@code QUIT}.
+     */
+    private void readLoop() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while (!closed && (line = in.readLine()) != null) {
+                handle(line.trim());
+            }
+        } catch (IOException e) {
+            // A reset connection ends the session like a clean disconnect
+        } finally {
+            close();
+        }
+    }
+
+    private void handle(String line) {
+        if (line.isEmpty()) return;
+        switch (line.charAt(0)) {
+            case 'U' -> inputs.offer(Direction.UP, System.nanoTime());
+            case 'D' -> inputs.offer(Direction.DOWN, System.nanoTime());
+            case 'L' -> inputs.offer(Direction.LEFT, System.nanoTime());
+            case 'R' -> inputs.offer(Direction.RIGHT, System.nanoTime());
+            case 'P' -> play(line);
+            case 'S' -> reply(server.stats());
+            case 'Q' -> close();
+            default -> reply("ERR unknown command");
+        }
+    }
+
+    private void play(String line) {
+        String[] parts = line.split("\\s+");
+        try {
+            GameID id = new GameID(parts[1].toUpperCase(), Integer.parseInt(parts[2]));
+            LevelTemplate template = server.getTemplate(id);
+            if (template == null) {
+                reply("ERR no such level");
+                return;
+            }
+            long seed = (parts.length > 3) ? Long.parseLong(parts[3]) : server.nextSeed();
+            // Turns sent before the new game do not carry over into it
+            inputs.clear();
+            requestedLevel.set(new GameLevel(template, seed));
+        } catch (RuntimeException e) {
+            reply("ERR usage: PLAY <difficulty> <level> [seed]");
+        }
+    }
+
+    /**
+     * Writes tick updates as {@code T <tick> <score> <x> <y>} lines, and
+     * {@code END <score> WON|LOST} when a game ends, along with replies to
+     * commands. Parks while there is nothing to write.
+     */
+    private void writeLoop() {
+        long sent = -1;
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+            while (!closed) {
+                Status s = status;
+                boolean fresh = s != null && s.tick != sent;
+                if (!fresh && replies.isEmpty()) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                for (String reply; (reply = replies.poll()) != null; ) {
+                    out.write(reply);
+                    out.write('\n');
+                }
+                if (fresh) {
+                    sent = s.tick;
+                    out.write("T " + s.tick + " " + s.score + " " + s.headX + " " + s.headY + "\n");
+                    if (s.ended) {
+                        out.write("END " + s.score + (s.won ? " WON\n" : " LOST\n"));
+                    }
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Queues a reply line for the writer thread.
+     */
+    private void reply(String message) {
+        replies.add(message);
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Closes the connection and stops both threads. The tick thread drops
+     * the session on its next tick.
+     */
+    void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        if (writer != null) LockSupport.unpark(writer);
+    }
+}
@@ -0,0 +1,352 @@
+package snake.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import snake.model.GameLevel;
+
+/**
+ * Streams a live game to any number of watchers over TCP.
+ * <p>
+ * The game thread calls {@link #publish} after every tick. Each tick is
+ * encoded once, as the cells that changed, and every
+ * {@code keyframeInterval} ticks, or when a new level is published, as the
+ * whole board (see {@link FeedCodec}).
+ * One selector thread then writes the same encoded frame to every watcher
+ * without blocking. A new watcher first gets the latest keyframe and the
+ * deltas since, so it can show the board straight away.
+ * <p>
+ * Each watcher may have at most {@value #MAX_PENDING_BYTES} bytes queued. A
+ * watcher that falls further behind loses its queued deltas and resumes at
+ * the next keyframe, so a slow connection never holds up the game or the
+ * other watchers and never grows the server's memory.
+ * <p>
+ * The desktop game streams what is played when the
+ * {@code snake.spectator.port} system property gives a port, 0 for any
+ * free one; a watcher rebuilds the board with a {@link SpectatorView}.
+ */
+public class SpectatorFeed {
+    /** The system property holding the port of the desktop game's feed. */
+    public static final String PORT_PROPERTY = "snake.spectator.port";
+    /** The most bytes queued for one watcher before it is skipped to the next keyframe. */
+    public static final int MAX_PENDING_BYTES = 256 * 1024;
+    /** The default number of ticks between two keyframes. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    /**
+     * One connected watcher and the frames not yet written to it.
+     */
+    private static class Watcher {
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        int pendingBytes = 0;
+        boolean awaitingKeyframe = false;
+
+        Watcher(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final int keyframeInterval;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Queue<ByteBuffer> published = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    /** The level of the last publish and the ticks published since its last keyframe; game thread only. */
+    private GameLevel lastLevel = null;
+    private int tick = 0;
+    private int sinceKeyframeTicks = 0;
+
+    // Only touched by the selector thread
+    private final ArrayList<Watcher> watchers = new ArrayList<>();
+    private final ArrayList<ByteBuffer> sinceKeyframe = new ArrayList<>();
+
+    private final AtomicLong framesPublished = new AtomicLong();
+    private final AtomicLong bytesPublished = new AtomicLong();
+    private final AtomicLong keyframesPublished = new AtomicLong();
+    private final AtomicLong keyframeBytes = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    /**
+     * Opens the feed on the loopback interface and starts its selector thread.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param keyframeInterval the number of ticks between two keyframes
+     * @throws IOException if the port cannot be bound
+     */
+    public SpectatorFeed(int port, int keyframeInterval) throws IOException {
+        if (keyframeInterval < 1) throw new IllegalArgumentException("Keyframe interval must be positive");
+        this.keyframeInterval = keyframeInterval;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "snake-spectator-feed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Opens a feed with the default keyframe interval if the
+     * {@value #PORT_PROPERTY} system property is set.
+     *
+     * @return the open feed, or null if none was requested or it failed to open
+     */
+    public static SpectatorFeed openIfRequested() {
+        String port = System.getProperty(PORT_PROPERTY);
+        if (port == null) return null;
+        try {
+            return new SpectatorFeed(Integer.parseInt(port.trim()), DEFAULT_KEYFRAME_INTERVAL);
+        } catch (NumberFormatException ex) {
+            System.out.println("Invalid " + PORT_PROPERTY + ": " + port);
+        } catch (IOException | IllegalArgumentException ex) {
+            System.out.println("SpectatorFeed error: " + ex.getMessage());
+        }
+        return null;
+    }
+
+    // getPort is a getter
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Encodes the tick just played and queues it for every watcher. Called
+     * by the game thread after each move. The first call, and the first
+     * call with a different level object after a new game or a loaded one,
+     * send a keyframe.
+     *
+     * @param level the level after the move
+     */
+    public void publish(GameLevel level) {
+        ByteBuffer frame;
+        if (level != lastLevel || sinceKeyframeTicks >= keyframeInterval) {
+            frame = FeedCodec.keyframe(level, tick);
+            lastLevel = level;
+            sinceKeyframeTicks = 0;
+            keyframesPublished.incrementAndGet();
+            keyframeBytes.addAndGet(frame.remaining());
+        } else {
+            frame = FeedCodec.delta(level, tick);
+        }
+        tick++;
+        sinceKeyframeTicks++;
+        framesPublished.incrementAndGet();
+        bytesPublished.addAndGet(frame.remaining());
+        published.add(frame);
+        selector.wakeup();
+    }
+
+    /**
+     * Disconnects every watcher and stops the selector thread.
+     */
+    public void close() {
+        try {
+            selector.close();
+            serverChannel.close();
+        } catch (IOException e) {
+            System.out.println("close error: " + e.getMessage());
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // getWatcherCount is a getter, approximate while the feed is running
+    public int getWatcherCount() {
+        return watchers.size();
+    }
+
+    // getFramesPublished is a getter
+    public long getFramesPublished() {
+        return framesPublished.get();
+    }
+
+    // getBytesPublished is a getter: encoded bytes, counted once per frame
+    public long getBytesPublished() {
+        return bytesPublished.get();
+    }
+
+    // getKeyframesPublished is a getter
+    public long getKeyframesPublished() {
+        return keyframesPublished.get();
+    }
+
+    // getKeyframeBytes is a getter: the part of getBytesPublished spent on keyframes
+    public long getKeyframeBytes() {
+        return keyframeBytes.get();
+    }
+
+    // getBytesSent is a getter: bytes written over all watchers
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    // getFramesDropped is a getter: frames skipped for watchers that fell behind
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    // getThread is a getter, for measuring the CPU time of the feed
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * The body of the selector thread.
+     */
+    private void run() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                for (ByteBuffer frame; (frame = published.poll()) != null; ) {
+                    broadcast(frame);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Watcher w = (Watcher) key.attachment();
+                        if (key.isReadable()) drain(key, w);
+                        if (key.isValid() && key.isWritable()) flush(key, w);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // The feed was closed
+        } finally {
+            for (Watcher w : watchers) {
+                closeQuietly(w);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Watcher w = new Watcher(channel);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ, w);
+            watchers.add(w);
+            for (ByteBuffer frame : sinceKeyframe) {
+                enqueue(w, frame);
+            }
+            flush(key, w);
+        }
+    }
+
+    /**
+     * Queues a frame for every watcher and writes as much as each socket
+     * takes right away.
+     */
+    private void broadcast(ByteBuffer frame) {
+        if (frame.get(4) == FeedCodec.KEYFRAME) {
+            sinceKeyframe.clear();
+        }
+        sinceKeyframe.add(frame);
+        for (int i = watchers.size() - 1; i >= 0; i--) {
+            Watcher w = watchers.get(i);
+            enqueue(w, frame);
+            flush(w.channel.keyFor(selector), w);
+        }
+    }
+
+    /**
+     * Queues a frame for one watcher, skipping it to the next keyframe if
+     * it has fallen too far behind. A frame that is partly written stays,
+     * so the stream is never cut mid-frame.
+     */
+    private void enqueue(Watcher w, ByteBuffer frame) {
+        boolean keyframe = frame.get(4) == FeedCodec.KEYFRAME;
+        if (w.pendingBytes + frame.remaining() > MAX_PENDING_BYTES && !w.awaitingKeyframe) {
+            ByteBuffer partial = w.pending.peekFirst();
+            boolean keepPartial = partial != null && partial.position() > 0;
+            framesDropped.addAndGet(w.pending.size() - (keepPartial ? 1 : 0));
+            w.pending.clear();
+            w.pendingBytes = 0;
+            if (keepPartial) {
+                w.pending.add(partial);
+                w.pendingBytes = partial.remaining();
+            }
+            w.awaitingKeyframe = true;
+        }
+        if (w.awaitingKeyframe) {
+            if (!keyframe) {
+                framesDropped.incrementAndGet();
+                return;
+            }
+            w.awaitingKeyframe = false;
+        }
+        w.pending.add(frame.duplicate());
+        w.pendingBytes += frame.remaining();
+    }
+
+    /**
+     * Writes queued frames until the socket would block, and asks to be
+     * told when it can take more.
+     */
+    private void flush(SelectionKey key, Watcher w) {
+        try {
+            ByteBuffer head;
+            while ((head = w.pending.peekFirst()) != null) {
+                int written = w.channel.write(head);
+                bytesSent.addAndGet(written);
+                w.pendingBytes -= written;
+                if (head.hasRemaining()) break;
+                w.pending.pollFirst();
+            }
+            key.interestOps(w.pending.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            remove(key, w);
+        }
+    }
+
+    /**
+     * Reads and discards anything a watcher sends, to notice when it leaves.
+     */
+    private void drain(SelectionKey key, Watcher w) {
+        ByteBuffer scratch = ByteBuffer.allocate(256);
+        try {
+            if (w.channel.read(scratch) < 0) {
+                remove(key, w);
+            }
+        } catch (IOException e) {
+            remove(key, w);
+        }
+    }
+
+    private void remove(SelectionKey key, Watcher w) {
+        key.cancel();
+        watchers.remove(w);
+        closeQuietly(w);
+    }
+
+    private static void closeQuietly(Watcher w) {
+        try {
+            w.channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
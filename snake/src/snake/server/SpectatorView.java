@@ -0,0 +1,86 @@
+package snake.server;
+
+import java.nio.ByteBuffer;
+import snake.model.LevelItem;
+import snake.persistence.Varint;
+
+/**
+ * Rebuilds a watched game from the frames of a {@link SpectatorFeed}. A
+ * view ignores deltas until it has seen its first keyframe.
+ */
+public class SpectatorView {
+    private byte[] cells = null;
+    private int rows, cols;
+    private int tick = -1;
+    private int score = 0;
+
+    /**
+     * Applies one frame.
+     *
+     * @param frame the frame body, without its length prefix
+     * @return true if the view is up to date after the frame, false while waiting for a keyframe
+     */
+    public boolean apply(ByteBuffer frame) {
+        byte type = frame.get();
+        int frameTick = Varint.get(frame);
+        int frameScore = Varint.get(frame);
+        if (type == FeedCodec.KEYFRAME) {
+            rows = Varint.get(frame);
+            cols = Varint.get(frame);
+            cells = new byte[rows * cols];
+            int cell = 0;
+            while (cell < cells.length) {
+                int run = Varint.get(frame);
+                byte code = frame.get();
+                for (int i = 0; i < run; i++) {
+                    cells[cell++] = code;
+                }
+            }
+        } else {
+            if (cells == null) return false;
+            int changes = Varint.get(frame);
+            for (int i = 0; i < changes; i++) {
+                int cell = Varint.get(frame);
+                cells[cell] = frame.get();
+            }
+        }
+        tick = frameTick;
+        score = frameScore;
+        return true;
+    }
+
+    // isReady is a getter
+    public boolean isReady() {
+        return cells != null;
+    }
+
+    // getTick is a getter
+    public int getTick() {
+        return tick;
+    }
+
+    // getScore is a getter
+    public int getScore() {
+        return score;
+    }
+
+    // getRows is a getter
+    public int getRows() {
+        return rows;
+    }
+
+    // getCols is a getter
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the item at the given cell as last seen.
+     *
+     * @param cell the cell index {@code y * cols + x}
+     * @return the level item in that cell
+     */
+    public LevelItem getItem(int cell) {
+        return LevelItem.fromCode(cells[cell]);
+    }
+}
@@ -0,0 +1,255 @@
+package snake.view;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import snake.metrics.LatencyHistogram;
+import snake.model.*;
+
+/**
+ * A game board drawn by its own render loop instead of by Swing.
+ * <p>
+ * A render thread draws into a {@link BufferStrategy} at a fixed frame
+ * rate, separately from the game loop, so frames arrive at a steady pace
+ * and the frame rate can be higher than the tick rate. Between two ticks
+ * the head glides from its previous cell into its current one, and the
+ * tail from the cell it left into its current one, a tick behind the game.
+ * The body in between only changes at a tick, which looks the same since
+ * each of its cells stays covered. The frame rate and the time spent
+ * drawing a frame are shown in the top left corner.
+ * <p>
+ * Like {@link Board}, it shows at most {@value Board#MAX_VIEW_WIDTH} by
+ * {@value Board#MAX_VIEW_HEIGHT} pixels of the level. The view stays
+ * centered on the gliding head, as far as the level allows, and only the
+ * tiles inside it are drawn, so large levels cost no more per frame than
+ * small ones.
+ * <p>
+ * Select it with {@code -Dsnake.render=active}, and the frame rate with
+ * {@code -Dsnake.render.fps}.
+ */
+public class ActiveBoard extends Canvas implements GameView {
+    /** The frame rate used when none is given. */
+    public static final int DEFAULT_FPS = 120;
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final Game game;
+    private final LatencyHistogram frameTimes;
+    private final LongSupplier tickPeriod;
+    private final long frameNanos;
+    private final TilePainter painter;
+    private final int tileSize = 32;
+    private volatile int scaledSize;
+    private volatile boolean running = false;
+    private Thread thread = null;
+
+    // Only touched by the render thread
+    private long secondStart = 0;
+    private int framesThisSecond = 0;
+    private long drawNanosThisSecond = 0;
+    private long maxDrawNanos = 0;
+    private String overlay = "";
+
+    /**
+     * Creates an active board. Rendering starts once the board is shown.
+     *
+     * @param g the Game instance
+     * @param frameTimes the histogram the drawing time of every frame is recorded into, or null
+     * @param tickPeriod the tick period of the game loop in nanoseconds
+     * @param fps the frame rate to render at
+     * @throws IOException if any resource fails to load
+     */
+    public ActiveBoard(Game g, LatencyHistogram frameTimes, LongSupplier tickPeriod, int fps) throws IOException {
+        game = g;
+        this.frameTimes = frameTimes;
+        this.tickPeriod = tickPeriod;
+        frameNanos = SECOND / Math.max(1, fps);
+        scaledSize = tileSize;
+        painter = TilePainter.loadDefault();
+        setIgnoreRepaint(true);
+        setFocusable(false);
+        setBackground(Color.BLACK);
+    }
+
+    @Override
+    public boolean setScale(double scale) {
+        scaledSize = (int)(scale * tileSize);
+        return refresh();
+    }
+
+    @Override
+    public boolean refresh() {
+        if (!game.isLevelLoaded()) return false;
+        int size = Math.max(1, scaledSize);
+        Dimension dim = new Dimension(Math.min(game.getLevelCols() * size, Board.MAX_VIEW_WIDTH / size * size),
+                Math.min(game.getLevelRows() * size, Board.MAX_VIEW_HEIGHT / size * size));
+        setPreferredSize(dim);
+        setMaximumSize(dim);
+        setSize(dim);
+        return true;
+    }
+
+    /**
+     * Does nothing: the render loop draws every frame anyway.
+     */
+    @Override
+    public void repaintChanged() {
+    }
+
+    /**
+     * Starts the render thread once the board is on screen.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        running = true;
+        thread = new Thread(this::run, "snake-render-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the render thread before the board leaves the screen.
+     */
+    @Override
+    public void removeNotify() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * The body of the render thread: draws a frame, then sleeps until the
+     * next frame is due.
+     */
+    private void run() {
+        long next = System.nanoTime();
+        secondStart = next;
+        while (running) {
+            long start = System.nanoTime();
+            try {
+                renderFrame();
+            } catch (IllegalStateException e) {
+                // The peer went away while drawing; removeNotify stops the loop
+            }
+            long drawn = System.nanoTime() - start;
+            if (frameTimes != null) frameTimes.record(drawn);
+            countFrame(start, drawn);
+
+            next += frameNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Draws one frame into the back buffer and shows it, redrawing if the
+     * buffer contents were lost meanwhile.
+     */
+    private void renderFrame() {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            createBufferStrategy(2);
+            return;
+        }
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    render(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Draws the latest frame, with the head and the tail interpolated
+     * between their last two cells, and the overlay.
+     */
+    private void render(Graphics2D g) {
+        int viewWidth = getWidth(), viewHeight = getHeight();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, viewWidth, viewHeight);
+        Frame frame = game.readFrame();
+        if (frame != null) {
+            int size = Math.max(1, scaledSize);
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+
+            double progress = 1.0;
+            if (!frame.isGameEnded() && frame.getTick() > 0) {
+                long period = Math.max(1, tickPeriod.getAsLong());
+                progress = Math.min(1.0, (double) (System.nanoTime() - frame.getPublishedAt()) / period);
+            }
+            Direction d = frame.getDirection();
+            int behind = (int) Math.round((1.0 - progress) * size);
+            int headX = frame.getHeadX() * size - d.x * behind;
+            int headY = frame.getHeadY() * size - d.y * behind;
+
+            // The view in pixels, centered on the head and kept inside the level
+            int left = clamp(headX + size / 2 - viewWidth / 2, frame.cols * size - viewWidth);
+            int top = clamp(headY + size / 2 - viewHeight / 2, frame.rows * size - viewHeight);
+            int fromX = left / size, toX = Math.min(frame.cols, (left + viewWidth + size - 1) / size);
+            int fromY = top / size, toY = Math.min(frame.rows, (top + viewHeight + size - 1) / size);
+
+            painter.paint(g, frame, game.getLevelTemplate(frame.gameID), size, gc,
+                    left, top, fromX, fromY, toX, toY, LevelItem.SNAKE_HEAD);
+            Image[] tiles = painter.getTiles(size, gc);
+            // The tail still covers part of the cell it left; it has not moved if the snake grew
+            Direction t = frame.getTailDirection();
+            if (t != null && behind > 0) {
+                int tailX = frame.getTailX() * size - t.x * behind;
+                int tailY = frame.getTailY() * size - t.y * behind;
+                g.drawImage(tiles[LevelItem.SNAKE_BODY.code()], tailX - left, tailY - top, null);
+            }
+            g.drawImage(tiles[LevelItem.SNAKE_HEAD.code()], headX - left, headY - top, null);
+        }
+        g.setColor(Color.YELLOW);
+        g.drawString(overlay, 4, 14);
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    /**
+     * Updates the overlay once a second with the frame rate and the
+     * average and longest time spent drawing a frame.
+     */
+    private void countFrame(long start, long drawn) {
+        framesThisSecond++;
+        drawNanosThisSecond += drawn;
+        maxDrawNanos = Math.max(maxDrawNanos, drawn);
+        if (start - secondStart >= SECOND) {
+            overlay = String.format("%d fps | frame %.2f ms, max %.2f ms", framesThisSecond,
+                    drawNanosThisSecond / 1e6 / framesThisSecond, maxDrawNanos / 1e6);
+            secondStart = start;
+            framesThisSecond = 0;
+            drawNanosThisSecond = 0;
+            maxDrawNanos = 0;
+        }
+    }
+}
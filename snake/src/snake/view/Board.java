@@ -3,21 +3,52 @@ package snake.view;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Image;
+import java.awt.Rectangle;
 import java.io.IOException;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import snake.metrics.LatencyHistogram;
 import snake.model.*;
-import snake.res.ResourceLoader;
 
 /**
  * The game board panel that renders the game level and elements.
+ * <p>
+ * While a game runs only the cells each tick changed are repainted, see
+ * {@link #repaintChanged()}; loading a level, rescaling and resizing still
+ * repaint the whole board. Painting only draws the tiles inside the clip,
+ * copying them from a {@link TileCache} already scaled to the current size.
+ * Walls, rocks and empty cells come from a {@link StaticLayer} copied in
+ * one piece, so only the snake and the food are drawn tile by tile.
+ * <p>
+ * The board shows at most {@value #MAX_VIEW_WIDTH} by
+ * {@value #MAX_VIEW_HEIGHT} pixels of the level through a {@link Camera}
+ * following the snake, so larger levels cost no more to paint.
  */
-public class Board extends JPanel {
+public class Board extends JPanel implements GameView {
+    /** Above this many changed cells waiting to be painted the whole board is repainted instead. */
+    private static final int MAX_DIRTY_CELLS = 256;
+    /** The largest width of the board on screen, in pixels. */
+    public static final int MAX_VIEW_WIDTH = 1280;
+    /** The largest height of the board on screen, in pixels. */
+    public static final int MAX_VIEW_HEIGHT = 960;
+
     private Game game;
-    private final Image snakeHead, snakeBody, food, wall, rock, empty;
+    private final LatencyHistogram paintTimes;
+    private final TilePainter painter;
     private double scale;
     private int scaledSize;
     private final int tileSize = 32;
+    /** The part of the level shown; event dispatch thread only. */
+    private final Camera camera = new Camera();
+
+    /** Guards the dirty cells, which the game thread adds and the event dispatch thread paints. */
+    private final Object dirtyLock = new Object();
+    private final int[] dirty = new int[MAX_DIRTY_CELLS];
+    private int dirtyCount = 0;
+    private boolean dirtyAll = false;
+    private boolean dirtyPosted = false;
+    /** The dirty cells being painted; event dispatch thread only. */
+    private final int[] painting = new int[MAX_DIRTY_CELLS];
 
     /**
      * Creates a Board instance and initializes resources.
@@ -26,17 +57,23 @@ public class Board extends JPanel {
      * @throws IOException if any resource fails to load
      */
     public Board(Game g) throws IOException {
+        this(g, null);
+    }
+
+    /**
+     * Creates a Board instance that records how long each paint takes.
+     *
+     * @param g the Game instance
+     * @param paintTimes the histogram paint times are recorded into, or null
+     * @throws IOException if any resource fails to load
+     */
+    public Board(Game g, LatencyHistogram paintTimes) throws IOException {
         game = g;
+        this.paintTimes = paintTimes;
         scale = 1.0;
         scaledSize = (int)(scale * tileSize);
 
-        // Load images
-        snakeHead = ResourceLoader.loadImage("snake/res/snake_head.png");
-        snakeBody = ResourceLoader.loadImage("snake/res/snake_body.png");
-        food = ResourceLoader.loadImage("snake/res/food.png");
-        wall = ResourceLoader.loadImage("snake/res/wall.png");
-        rock = ResourceLoader.loadImage("snake/res/rock.png");
-        empty = ResourceLoader.loadImage("snake/res/empty.png");
+        painter = TilePainter.loadDefault();
     }
 
     /**
@@ -45,6 +82,7 @@ public class Board extends JPanel {
      * @param scale the new scale factor
      * @return true if refresh succeeds; false otherwise
      */
+    @Override
     public boolean setScale(double scale) {
         this.scale = scale;
         scaledSize = (int)(scale * tileSize);
@@ -56,9 +94,16 @@ public class Board extends JPanel {
      *
      * @return true if the level is loaded; false otherwise
      */
+    @Override
     public boolean refresh() {
         if (!game.isLevelLoaded()) return false;
-        Dimension dim = new Dimension(game.getLevelCols() * scaledSize, game.getLevelRows() * scaledSize);
+        int cols = game.getLevelCols();
+        int rows = game.getLevelRows();
+        camera.resize(Math.min(cols, MAX_VIEW_WIDTH / Math.max(1, scaledSize)),
+                Math.min(rows, MAX_VIEW_HEIGHT / Math.max(1, scaledSize)));
+        Position head = game.getPlayerPos();
+        camera.center(head.x, head.y, cols, rows);
+        Dimension dim = new Dimension(camera.cols * scaledSize, camera.rows * scaledSize);
         setPreferredSize(dim);
         setMaximumSize(dim);
         setSize(dim);
@@ -67,34 +112,104 @@ public class Board extends JPanel {
     }
 
     /**
-     * Paints the board and its elements.
+     * Repaints the cells the last game step changed. Called on the thread
+     * that steps the game, right after the step; the cells are painted on
+     * the event dispatch thread, each with its own clip, since
+     * {@link #repaint(int, int, int, int)} would merge a head and a tail on
+     * opposite sides of the board into one large region.
+     */
+    @Override
+    public void repaintChanged() {
+        int changed = game.getChangedCount();
+        synchronized (dirtyLock) {
+            if (dirtyCount + changed > MAX_DIRTY_CELLS) {
+                dirtyAll = true;
+            } else {
+                for (int i = 0; i < changed; i++) {
+                    dirty[dirtyCount++] = game.getChangedCell(i);
+                }
+            }
+            if (dirtyPosted) return;
+            dirtyPosted = true;
+        }
+        SwingUtilities.invokeLater(this::paintDirty);
+    }
+
+    /**
+     * Paints the cells collected by {@link #repaintChanged()}, or the whole
+     * board if too many piled up.
+     */
+    private void paintDirty() {
+        int count;
+        boolean all;
+        synchronized (dirtyLock) {
+            count = dirtyCount;
+            all = dirtyAll;
+            System.arraycopy(dirty, 0, painting, 0, count);
+            dirtyCount = 0;
+            dirtyAll = false;
+            dirtyPosted = false;
+        }
+        if (all) {
+            repaint();
+            return;
+        }
+        Frame frame = game.readFrame();
+        if (frame == null) return;
+        if (camera.follow(frame.getHeadX(), frame.getHeadY(), frame.cols, frame.rows)) {
+            repaint();
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            Rectangle r = getCellBounds(painting[i], frame.cols);
+            if (r != null) {
+                paintImmediately(r);
+            }
+        }
+    }
+
+    /**
+     * Returns where a cell is drawn on the board.
+     *
+     * @param cell the cell index {@code y * cols + x}
+     * @param cols the number of columns of the level
+     * @return the cell's bounds in board coordinates, or null if the cell is out of view
+     */
+    public Rectangle getCellBounds(int cell, int cols) {
+        int x = cell % cols - camera.x;
+        int y = cell / cols - camera.y;
+        if (x < 0 || y < 0 || x >= camera.cols || y >= camera.rows) return null;
+        return new Rectangle(x * scaledSize, y * scaledSize, scaledSize, scaledSize);
+    }
+
+    /**
+     * Paints the tiles inside the clip from the latest frame published by
+     * the game thread, so a tick running meanwhile cannot tear the picture.
      *
      * @param g the Graphics object used for drawing
      */
     @Override
     protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
-        if (!game.isLevelLoaded()) return;
+        Frame frame = game.readFrame();
+        if (frame == null) return;
         Graphics2D gr = (Graphics2D) g;
-        int cols = game.getLevelCols();
-        int rows = game.getLevelRows();
-
-        for (int y = 0; y < rows; y++) {
-            for (int x = 0; x < cols; x++) {
-                Image img = null;
-                LevelItem element = game.getItem(y, x);
-                switch (element) {
-                    case SNAKE_HEAD: img = snakeHead; break;
-                    case SNAKE_BODY: img = snakeBody; break;
-                    case FOOD: img = food; break;
-                    case WALL: img = wall; break;
-                    case ROCK: img = rock; break;
-                    case EMPTY: img = empty; break;
-                }
-                if (img != null) {
-                    gr.drawImage(img, x * scaledSize, y * scaledSize, scaledSize, scaledSize, null);
-                }
-            }
+        // Visible cells are counted from the camera's corner
+        int fromX = 0, fromY = 0;
+        int toX = Math.min(camera.cols, frame.cols - camera.x);
+        int toY = Math.min(camera.rows, frame.rows - camera.y);
+        Rectangle clip = g.getClipBounds();
+        if (clip != null && scaledSize > 0) {
+            fromX = Math.max(0, clip.x / scaledSize);
+            fromY = Math.max(0, clip.y / scaledSize);
+            toX = Math.min(toX, (clip.x + clip.width + scaledSize - 1) / scaledSize);
+            toY = Math.min(toY, (clip.y + clip.height + scaledSize - 1) / scaledSize);
         }
+
+        painter.paint(gr, frame, game.getLevelTemplate(frame.gameID), scaledSize, getGraphicsConfiguration(),
+                camera.x * scaledSize, camera.y * scaledSize,
+                camera.x + fromX, camera.y + fromY, camera.x + toX, camera.y + toY, null);
+        if (paintTimes != null) paintTimes.recordSince(start);
     }
 }
@@ -0,0 +1,70 @@
+package snake.view;
+
+/**
+ * The part of a level shown on screen, in cells, following the snake's
+ * head.
+ * <p>
+ * The camera stays put while the head is well inside the view and jumps to
+ * center the head when it comes within a quarter of the view of an edge,
+ * so most ticks still only repaint the cells that changed. The view never
+ * extends past the level; a level smaller than the view is shown whole.
+ */
+final class Camera {
+    /** The leftmost column shown. */
+    int x = 0;
+    /** The topmost row shown. */
+    int y = 0;
+    /** The number of columns shown. */
+    int cols = 1;
+    /** The number of rows shown. */
+    int rows = 1;
+
+    /**
+     * Sets the size of the view.
+     *
+     * @param cols the number of columns shown
+     * @param rows the number of rows shown
+     */
+    void resize(int cols, int rows) {
+        this.cols = Math.max(1, cols);
+        this.rows = Math.max(1, rows);
+    }
+
+    /**
+     * Centers the view on a cell, as far as the level allows.
+     *
+     * @param headX the column to center on
+     * @param headY the row to center on
+     * @param levelCols the number of columns of the level
+     * @param levelRows the number of rows of the level
+     */
+    void center(int headX, int headY, int levelCols, int levelRows) {
+        x = clamp(headX - cols / 2, levelCols - cols);
+        y = clamp(headY - rows / 2, levelRows - rows);
+    }
+
+    /**
+     * Moves the view if the head came too close to one of its edges.
+     *
+     * @param headX the column of the head
+     * @param headY the row of the head
+     * @param levelCols the number of columns of the level
+     * @param levelRows the number of rows of the level
+     * @return true if the view moved
+     */
+    boolean follow(int headX, int headY, int levelCols, int levelRows) {
+        int oldX = x, oldY = y;
+        int marginX = cols / 4, marginY = rows / 4;
+        if (headX < x + marginX || headX >= x + cols - marginX) {
+            x = clamp(headX - cols / 2, levelCols - cols);
+        }
+        if (headY < y + marginY || headY >= y + rows - marginY) {
+            y = clamp(headY - rows / 2, levelRows - rows);
+        }
+        return x != oldX || y != oldY;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+}
@@ -0,0 +1,30 @@
+package snake.view;
+
+/**
+ * A component that shows the board of a {@link snake.model.Game}, painted
+ * either by Swing ({@link Board}) or by its own render loop
+ * ({@link ActiveBoard}).
+ */
+public interface GameView {
+
+    /**
+     * Sets the scale for rendering the board.
+     *
+     * @param scale the new scale factor
+     * @return true if refresh succeeds; false otherwise
+     */
+    boolean setScale(double scale);
+
+    /**
+     * Resizes the view to the loaded level and redraws all of it.
+     *
+     * @return true if the level is loaded; false otherwise
+     */
+    boolean refresh();
+
+    /**
+     * Shows the cells the last game step changed. Called on the thread
+     * that steps the game, right after the step.
+     */
+    void repaintChanged();
+}
@@ -0,0 +1,318 @@
+package snake.view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import snake.model.Frame;
+import snake.model.FrameExchange;
+import snake.model.Game;
+import snake.model.GameID;
+import snake.model.GameLevel;
+import snake.model.LevelReader;
+import snake.model.LevelTemplate;
+import snake.persistence.Replay;
+
+/**
+ * Turns a recorded game into PNG images without a screen, for making
+ * clips of games in bulk.
+ * <p>
+ * The replay is played on the calling thread, which draws every tick with
+ * the same {@link TilePainter} as the {@link Board} into an offscreen
+ * image. Finished images are encoded and written by a pool of worker
+ * threads. Only a fixed number of images exist, one more than there are
+ * workers, so when the workers fall behind the drawing waits for an image
+ * to come back instead of using more memory.
+ * <p>
+ * An image holds one frame, or a sheet of frames laid out left to right
+ * and top to bottom. Like the board, a frame shows at most
+ * {@value Board#MAX_VIEW_WIDTH} by {@value Board#MAX_VIEW_HEIGHT} pixels
+ * of the level, following the snake. Images are named
+ * {@code <prefix>-000000.png}, {@code <prefix>-000001.png} and so on.
+ * A renderer draws one replay at a time; render several at once with one
+ * renderer each.
+ * <p>
+ * Runs with {@code -Djava.awt.headless=true}. From the command line:
+ * {@code ReplayRenderer <replay file> <output directory> [tile size] [sheet columns] [sheet rows] [threads]}.
+ */
+public class ReplayRenderer {
+    /** The tile size used when none is given. */
+    public static final int DEFAULT_TILE_SIZE = 16;
+
+    private static final ThreadLocal<PngEncoder> ENCODERS = ThreadLocal.withInitial(PngEncoder::new);
+
+    private final TilePainter painter;
+    private final int tileSize;
+    private final int sheetColumns;
+    private final int sheetRows;
+    private final int threads;
+
+    /**
+     * Creates a renderer writing one frame per image.
+     *
+     * @param tileSize the width and height of a tile in pixels
+     * @param threads the number of threads encoding images
+     * @throws IOException if the sprites fail to load
+     */
+    public ReplayRenderer(int tileSize, int threads) throws IOException {
+        this(tileSize, 1, 1, threads);
+    }
+
+    /**
+     * Creates a renderer writing sheets of frames.
+     *
+     * @param tileSize the width and height of a tile in pixels
+     * @param sheetColumns the number of frames side by side in an image
+     * @param sheetRows the number of frames above each other in an image
+     * @param threads the number of threads encoding images
+     * @throws IOException if the sprites fail to load
+     */
+    public ReplayRenderer(int tileSize, int sheetColumns, int sheetRows, int threads) throws IOException {
+        if (tileSize < 1 || sheetColumns < 1 || sheetRows < 1 || threads < 1) {
+            throw new IllegalArgumentException("Sizes and thread count must be positive");
+        }
+        painter = TilePainter.loadDefault();
+        this.tileSize = tileSize;
+        this.sheetColumns = sheetColumns;
+        this.sheetRows = sheetRows;
+        this.threads = threads;
+    }
+
+    /**
+     * Renders every tick of a replay.
+     *
+     * @param replay the replay to render
+     * @param template the level the replay was recorded on
+     * @param dir the directory to write the images to
+     * @param prefix the start of every image file name
+     * @return the number of images written
+     * @throws IOException if an image cannot be written
+     */
+    public int render(Replay replay, LevelTemplate template, Path dir, String prefix) throws IOException {
+        return render(replay, template, 0, replay.ticks, dir, prefix);
+    }
+
+    /**
+     * Renders the ticks of a replay from one tick to another, both
+     * included, such as the highlight of a game.
+     *
+     * @param replay the replay to render
+     * @param template the level the replay was recorded on
+     * @param fromTick the first tick drawn
+     * @param toTick the last tick drawn
+     * @param dir the directory to write the images to
+     * @param prefix the start of every image file name
+     * @return the number of images written
+     * @throws IOException if an image cannot be written
+     */
+    public int render(Replay replay, LevelTemplate template, int fromTick, int toTick, Path dir, String prefix)
+            throws IOException {
+        Files.createDirectories(dir);
+        int viewCols = Math.min(template.cols, Math.max(1, Board.MAX_VIEW_WIDTH / tileSize));
+        int viewRows = Math.min(template.rows, Math.max(1, Board.MAX_VIEW_HEIGHT / tileSize));
+        int frameWidth = viewCols * tileSize;
+        int frameHeight = viewRows * tileSize;
+
+        BlockingQueue<BufferedImage> free = new ArrayBlockingQueue<>(threads + 1);
+        for (int i = 0; i < threads + 1; i++) {
+            free.add(new BufferedImage(frameWidth * sheetColumns, frameHeight * sheetRows, BufferedImage.TYPE_INT_RGB));
+        }
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        ExecutorService encoders = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "snake-replay-encoder");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Sheets sheets = new Sheets(free, encoders, failure, dir, prefix, template, viewCols, viewRows);
+        try {
+            replay.play(template, fromTick, toTick, sheets::draw);
+            sheets.finish();
+        } catch (UncheckedIOException e) {
+            failure.compareAndSet(null, e.getCause());
+        } finally {
+            encoders.shutdown();
+            try {
+                while (!encoders.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // Keep waiting; every task ends once its file is written
+                }
+            } catch (InterruptedException e) {
+                encoders.shutdownNow();
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new InterruptedIOException("Interrupted while writing images"));
+            }
+        }
+        if (failure.get() != null) throw failure.get();
+        return sheets.images;
+    }
+
+    /**
+     * The drawing side of one {@link #render} call: fills images frame by
+     * frame and hands each full image to the encoders.
+     */
+    private final class Sheets {
+        private final BlockingQueue<BufferedImage> free;
+        private final ExecutorService encoders;
+        private final AtomicReference<IOException> failure;
+        private final Path dir;
+        private final String prefix;
+        private final LevelTemplate template;
+        private final Camera camera = new Camera();
+        private FrameExchange frames = null;
+        private BufferedImage sheet = null;
+        private Graphics2D graphics = null;
+        private int slot = 0;
+        int images = 0;
+
+        Sheets(BlockingQueue<BufferedImage> free, ExecutorService encoders, AtomicReference<IOException> failure,
+                Path dir, String prefix, LevelTemplate template, int viewCols, int viewRows) {
+            this.free = free;
+            this.encoders = encoders;
+            this.failure = failure;
+            this.dir = dir;
+            this.prefix = prefix;
+            this.template = template;
+            camera.resize(viewCols, viewRows);
+        }
+
+        /**
+         * Draws the level as it is now into the next free place.
+         *
+         * @param level the level after a tick
+         */
+        void draw(GameLevel level) {
+            if (failure.get() != null) throw new UncheckedIOException(failure.get());
+            if (frames == null) {
+                frames = new FrameExchange(level);
+                camera.center(level.snake.getHeadX(), level.snake.getHeadY(), level.cols, level.rows);
+            } else {
+                frames.publish(level);
+                camera.follow(level.snake.getHeadX(), level.snake.getHeadY(), level.cols, level.rows);
+            }
+            Frame frame = frames.read();
+
+            if (sheet == null) {
+                try {
+                    sheet = free.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Interrupted while rendering"));
+                }
+                graphics = sheet.createGraphics();
+                slot = 0;
+            }
+            int width = camera.cols * tileSize;
+            int height = camera.rows * tileSize;
+            Graphics2D g = (Graphics2D) graphics.create((slot % sheetColumns) * width, (slot / sheetColumns) * height,
+                    width, height);
+            try {
+                painter.paint(g, frame, template, tileSize, null, camera.x * tileSize, camera.y * tileSize,
+                        camera.x, camera.y, camera.x + camera.cols, camera.y + camera.rows, null);
+            } finally {
+                g.dispose();
+            }
+            if (++slot == sheetColumns * sheetRows) {
+                submit();
+            }
+        }
+
+        /**
+         * Hands over the last image if it is partly filled, blanking the
+         * places left over from its previous use.
+         */
+        void finish() {
+            if (sheet == null) return;
+            int width = camera.cols * tileSize;
+            int height = camera.rows * tileSize;
+            graphics.setColor(Color.BLACK);
+            for (int s = slot; s < sheetColumns * sheetRows; s++) {
+                graphics.fillRect((s % sheetColumns) * width, (s / sheetColumns) * height, width, height);
+            }
+            submit();
+        }
+
+        private void submit() {
+            graphics.dispose();
+            BufferedImage image = sheet;
+            Path file = dir.resolve(String.format("%s-%06d.png", prefix, images++));
+            sheet = null;
+            graphics = null;
+            encoders.execute(() -> {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), PngEncoder.CHUNK_SIZE)) {
+                    ENCODERS.get().write(image, out);
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    free.add(image);
+                }
+            });
+        }
+    }
+
+    /**
+     * Finds the level a replay was recorded on among the levels shipped
+     * with the game, or the "BIG" level when {@value Game#BIG_LEVEL_PROPERTY}
+     * gives its size.
+     *
+     * @param id the level of the replay
+     * @return the level, or null if there is none with that identifier
+     */
+    public static LevelTemplate findLevel(GameID id) {
+        int bigLevel = Integer.getInteger(Game.BIG_LEVEL_PROPERTY, 0);
+        if (bigLevel > 0 && id.equals(new GameID("BIG", 1))) {
+            return new LevelTemplate(id, bigLevel, bigLevel, 1);
+        }
+        for (LevelTemplate template : LevelReader.readDefaultLevels(1)) {
+            if (template.gameID.equals(id)) return template;
+        }
+        return null;
+    }
+
+    /**
+     * Renders a replay file from the command line.
+     *
+     * @param args the replay file, the output directory, and optionally the
+     *             tile size, the sheet columns and rows and the thread count
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: ReplayRenderer <replay file> <output directory> [tile size] [sheet columns] [sheet rows] [threads]");
+            return;
+        }
+        try {
+            Path file = Paths.get(args[0]);
+            int tileSize = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_TILE_SIZE;
+            int columns = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
+            int rows = (args.length > 4) ? Integer.parseInt(args[4]) : 1;
+            int threads = (args.length > 5) ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+            Replay replay = Replay.read(file);
+            LevelTemplate template = findLevel(replay.gameID);
+            if (template == null) {
+                System.out.println("ReplayRenderer error: unknown level " + replay.gameID.difficulty + " " + replay.gameID.level);
+                return;
+            }
+            String prefix = file.getFileName().toString().replaceFirst("\\.replay$", "");
+            long start = System.nanoTime();
+            int images = new ReplayRenderer(tileSize, columns, rows, threads)
+                    .render(replay, template, Paths.get(args[1]), prefix);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Rendered %d ticks into %d images in %.2f s (%.0f frames/s)%n",
+                    replay.ticks + 1, images, seconds, (replay.ticks + 1) / seconds);
+        } catch (IOException | NumberFormatException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
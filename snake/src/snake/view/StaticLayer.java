@@ -0,0 +1,86 @@
+package snake.view;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import snake.model.LevelItem;
+import snake.model.LevelTemplate;
+
+/**
+ * The walls, rocks and empty cells of a level drawn once into one image,
+ * so a frame copies the whole background at once and only draws the snake
+ * and the food tile by tile.
+ * <p>
+ * The image is rebuilt when another level is shown, when the tile size
+ * changes or when the board moves to another screen; restarting a level
+ * reuses it. Levels whose image would be larger than
+ * {@value #MAX_PIXELS} pixels are not cached, and are painted tile by tile.
+ * Only used by the one thread that paints the board.
+ */
+final class StaticLayer {
+    /** The largest background, in pixels, that is cached. */
+    static final int MAX_PIXELS = 4096 * 4096;
+
+    private LevelTemplate template = null;
+    private int size = 0;
+    private GraphicsConfiguration config = null;
+    private BufferedImage image = null;
+
+    /**
+     * Returns the background of a level at the given tile size, drawing it
+     * if needed.
+     *
+     * @param template the level
+     * @param size the width and height of a tile in pixels
+     * @param tiles the tiles of that size, indexed by {@link LevelItem#code()}
+     * @param gc the configuration of the screen drawn on, or null when not on screen
+     * @return the background, or null if the level is too large to cache
+     */
+    Image get(LevelTemplate template, int size, Image[] tiles, GraphicsConfiguration gc) {
+        if (template == this.template && size == this.size && gc == config) {
+            return image;
+        }
+        this.template = template;
+        this.size = size;
+        config = gc;
+        image = null;
+        if ((long) template.cols * size * template.rows * size > MAX_PIXELS || size <= 0) {
+            return null;
+        }
+
+        int transparency = Transparency.OPAQUE;
+        for (LevelItem item : new LevelItem[] {LevelItem.WALL, LevelItem.ROCK, LevelItem.EMPTY}) {
+            if (tiles[item.code()] instanceof Transparency t) {
+                transparency = Math.max(transparency, t.getTransparency());
+            }
+        }
+        int width = template.cols * size;
+        int height = template.rows * size;
+        image = (gc != null)
+                ? gc.createCompatibleImage(width, height, transparency)
+                : new BufferedImage(width, height, (transparency == Transparency.OPAQUE)
+                        ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            for (int cell = 0; cell < template.rows * template.cols; cell++) {
+                Image tile = tiles[template.getItem(cell).code()];
+                g.drawImage(tile, (cell % template.cols) * size, (cell / template.cols) * size, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Returns whether an item is part of the background.
+     *
+     * @param item the level item
+     * @return true for walls, rocks and empty cells
+     */
+    static boolean isStatic(LevelItem item) {
+        return item == LevelItem.WALL || item == LevelItem.ROCK || item == LevelItem.EMPTY;
+    }
+}
@@ -0,0 +1,112 @@
+package snake.view;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import snake.model.LevelItem;
+import snake.res.SpriteAtlas;
+
+/**
+ * The board tiles scaled once to the size they are drawn at, so painting a
+ * tile is a plain copy instead of a rescale of the source image.
+ * <p>
+ * Tiles are made compatible with the screen the board is on, which lets
+ * Java2D keep them in video memory. Tiles for the last
+ * {@value #MAX_SIZES} sizes are kept so switching scales back and forth
+ * does not rescale every time; older sizes are dropped. Moving the board to
+ * a screen with another configuration rebuilds every size. Only used by
+ * the one thread that paints the board.
+ */
+final class TileCache {
+    /** The number of tile sizes kept at once. */
+    static final int MAX_SIZES = 2;
+
+    private final BufferedImage[] sources;
+    private final Map<Integer, Image[]> tiles = new LinkedHashMap<>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Image[]> eldest) {
+            return size() > MAX_SIZES;
+        }
+    };
+    private GraphicsConfiguration config = null;
+
+    /**
+     * Creates a cache for the given source images.
+     *
+     * @param sources the image of each level item, indexed by {@link LevelItem#code()}
+     */
+    TileCache(BufferedImage[] sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Creates a cache for the tile sprites shipped with the game, taken
+     * from the default {@link SpriteAtlas}.
+     *
+     * @return a new cache
+     * @throws IOException if the atlas fails to load or lacks a tile
+     */
+    static TileCache loadDefault() throws IOException {
+        SpriteAtlas atlas = SpriteAtlas.getDefault();
+        BufferedImage[] images = new BufferedImage[LevelItem.values().length];
+        for (LevelItem item : LevelItem.values()) {
+            images[item.code()] = atlas.getSprite(item.name());
+        }
+        return new TileCache(images);
+    }
+
+    /**
+     * Returns the tiles for the given size, scaling them if needed.
+     *
+     * @param size the width and height of a tile in pixels
+     * @param gc the configuration of the screen drawn on, or null when not on screen
+     * @return the tile of each level item, indexed by {@link LevelItem#code()}
+     */
+    Image[] get(int size, GraphicsConfiguration gc) {
+        if (gc != config) {
+            tiles.clear();
+            config = gc;
+        }
+        Image[] scaled = tiles.get(size);
+        if (scaled == null) {
+            scaled = new Image[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                scaled[i] = scale(sources[i], size, gc);
+            }
+            tiles.put(size, scaled);
+        }
+        return scaled;
+    }
+
+    /**
+     * Drops every cached tile.
+     */
+    void clear() {
+        tiles.clear();
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size, GraphicsConfiguration gc) {
+        int transparency = source.getColorModel().getTransparency();
+        BufferedImage tile = (gc != null)
+                ? gc.createCompatibleImage(size, size, transparency)
+                : new BufferedImage(size, size, (transparency == Transparency.OPAQUE)
+                        ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = tile.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            g.dispose();
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,91 @@
+package snake.view;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.io.IOException;
+import snake.model.Frame;
+import snake.model.LevelItem;
+import snake.model.LevelTemplate;
+
+/**
+ * Draws the tiles of a frame, shared by every view of the game: the
+ * {@link Board}, the {@link ActiveBoard} and the {@link ReplayRenderer}.
+ * <p>
+ * The background of walls, rocks and empty cells is copied in one piece
+ * from a {@link StaticLayer} when the level is small enough to cache, so
+ * only the snake and the food are drawn tile by tile. Tiles come from a
+ * {@link TileCache}. Only used by one thread at a time.
+ */
+final class TilePainter {
+    private final TileCache tiles;
+    private final StaticLayer staticLayer = new StaticLayer();
+
+    /**
+     * Creates a painter drawing the given tiles.
+     *
+     * @param tiles the tiles to draw
+     */
+    TilePainter(TileCache tiles) {
+        this.tiles = tiles;
+    }
+
+    /**
+     * Creates a painter for the tile sprites shipped with the game.
+     *
+     * @return a new painter
+     * @throws IOException if the sprites fail to load
+     */
+    static TilePainter loadDefault() throws IOException {
+        return new TilePainter(TileCache.loadDefault());
+    }
+
+    /**
+     * Returns the tiles for the given size.
+     *
+     * @param size the width and height of a tile in pixels
+     * @param gc the configuration of the screen drawn on, or null when not on screen
+     * @return the tile of each level item, indexed by {@link LevelItem#code()}
+     */
+    Image[] getTiles(int size, GraphicsConfiguration gc) {
+        return tiles.get(size, gc);
+    }
+
+    /**
+     * Paints the cells of a frame from column {@code fromX} and row
+     * {@code fromY} up to, but not including, column {@code toX} and row
+     * {@code toY}. The cell at column x and row y is drawn at
+     * {@code (x * size - left, y * size - top)}.
+     *
+     * @param g the graphics to draw on
+     * @param frame the frame to draw
+     * @param template the level of the frame, or null to draw every tile
+     * @param size the width and height of a tile in pixels
+     * @param gc the configuration of the screen drawn on, or null when not on screen
+     * @param left the x coordinate, in level pixels, drawn at 0
+     * @param top the y coordinate, in level pixels, drawn at 0
+     * @param fromX the first column drawn
+     * @param fromY the first row drawn
+     * @param toX the column after the last one drawn
+     * @param toY the row after the last one drawn
+     * @param hidden an item to draw as an empty cell, or null
+     */
+    void paint(Graphics2D g, Frame frame, LevelTemplate template, int size, GraphicsConfiguration gc,
+            int left, int top, int fromX, int fromY, int toX, int toY, LevelItem hidden) {
+        Image[] tile = tiles.get(size, gc);
+        Image background = (template != null && template.rows == frame.rows && template.cols == frame.cols)
+                ? staticLayer.get(template, size, tile, gc) : null;
+        if (background != null) {
+            g.drawImage(background, -left, -top, null);
+        }
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                LevelItem item = frame.getItem(y, x);
+                if (item == hidden) item = LevelItem.EMPTY;
+                if (background == null || !StaticLayer.isStatic(item)) {
+                    g.drawImage(tile[item.code()], x * size - left, y * size - top, null);
+                }
+            }
+        }
+    }
+}
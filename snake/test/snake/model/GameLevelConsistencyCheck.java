@@ -0,0 +1,199 @@
+package snake.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Plays seeded random games for millions of ticks and checks, after every
+ * tick, that the state a {@link GameLevel} keeps up to date move by move
+ * agrees with a rebuild from scratch.
+ * <p>
+ * The rebuild is made only from the template, the snake's segments and the
+ * food. Every cell is compared against {@link GameLevel#getItem(int)}, the
+ * free-cell index, one of its cells picked by rank, and a frame kept up to date by a {@link FrameExchange},
+ * whose status is checked too. The move that ends a game leaves the
+ * free-cell index as it was, since no food is placed after it, so the index
+ * is only compared while the game goes on. The checked level is only read,
+ * never changed, so the game goes on exactly as it would without the check.
+ * <p>
+ * The games cycle through the levels shipped with the game, two small walled
+ * levels that get filled up and won, and a level without a border wall.
+ * Moves mostly go where the head can survive, with random turns, reversals
+ * and missing input mixed in.
+ * <p>
+ * There is no unit test library in this project, so this is a program.
+ * Run it with assertions enabled, from the build classes:
+ * {@code java -ea -cp build/classes:build/test/classes snake.model.GameLevelConsistencyCheck [ticks] [seed]}.
+ * It prints a summary and exits with status 1 at the first difference.
+ */
+public class GameLevelConsistencyCheck {
+    /** The number of ticks played when none is given. */
+    static final long DEFAULT_TICKS = 2_000_000L;
+
+    private final SplittableRandom random;
+    private final List<LevelTemplate> templates = new ArrayList<>();
+    private long ticks = 0;
+    private int games = 0;
+    private int won = 0;
+
+    GameLevelConsistencyCheck(long seed) {
+        random = new SplittableRandom(seed);
+        templates.addAll(LevelReader.readDefaultLevels(1));
+        templates.add(new LevelTemplate(rows(
+                "######",
+                "#    #",
+                "# @ F#",
+                "#    #",
+                "######"), new GameID("SMALL", 1), 1));
+        templates.add(new LevelTemplate(rows(
+                "#####",
+                "# @ #",
+                "#F  #",
+                "#####"), new GameID("SMALL", 2), 1));
+        templates.add(new LevelTemplate(rows(
+                "       ",
+                "   R   ",
+                "  @  F ",
+                "       ",
+                "       "), new GameID("OPEN", 1), 1));
+    }
+
+    private static ArrayList<String> rows(String... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    /**
+     * Plays games until the given number of ticks have been checked.
+     *
+     * @param limit the number of ticks to play
+     */
+    void run(long limit) {
+        while (ticks < limit) {
+            LevelTemplate template = templates.get(games % templates.size());
+            GameLevel level = new GameLevel(template, random.nextLong());
+            FrameExchange frames = new FrameExchange(level);
+            games++;
+            check(level, frames.read(), "start");
+            while (ticks < limit && level.moveSnake(choose(level))) {
+                ticks++;
+                frames.publish(level);
+                check(level, frames.read(), "tick");
+            }
+            if (level.isGameEnded()) {
+                // The frame of the last move still has to show the end of the game
+                frames.publish(level);
+                check(level, frames.read(), "end");
+            }
+            if (level.isGameWon()) won++;
+        }
+    }
+
+    /**
+     * Keeps going straight most of the time, turning towards cells the
+     * head survives in, and now and then turns at random or sends nothing.
+     */
+    private Direction choose(GameLevel level) {
+        int r = random.nextInt(100);
+        if (r < 3) return null;
+        Direction[] all = Direction.values();
+        if (r < 8) return all[random.nextInt(all.length)];
+        Direction current = level.snake.getCurrentDirection();
+        Direction wanted = (r < 30) ? all[random.nextInt(all.length)] : current;
+        for (int i = 0; i < all.length; i++) {
+            Direction d = all[(wanted.ordinal() + i) % all.length];
+            if (d == current.opposite()) continue;
+            int next = level.snake.getNextHeadCell(d);
+            if (next == Snake.OFF_BOARD) continue;
+            LevelItem item = level.getItem(next);
+            if (item == LevelItem.EMPTY || item == LevelItem.FOOD || next == level.snake.getTailCell()) return d;
+        }
+        return wanted;
+    }
+
+    /**
+     * Compares every cell of the level, its free-cell index and a frame
+     * against a rebuild from the template, the snake and the food.
+     */
+    private void check(GameLevel level, Frame frame, String when) {
+        LevelTemplate template = level.getTemplate();
+        int cells = level.rows * level.cols;
+        LevelItem[] expected = new LevelItem[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            expected[cell] = template.getItem(cell);
+        }
+        PagedBitSet food = level.getFood();
+        for (int cell = food.nextSetBit(0); cell >= 0; cell = food.nextSetBit(cell + 1)) {
+            if (expected[cell] != LevelItem.EMPTY) fail(level, when, "food on " + expected[cell] + " at cell " + cell);
+            expected[cell] = LevelItem.FOOD;
+        }
+        Snake snake = level.snake;
+        for (int i = snake.getLength() - 1; i > 0; i--) {
+            int cell = snake.getSegment(i);
+            if (expected[cell] == LevelItem.FOOD) fail(level, when, "food under the snake at cell " + cell);
+            expected[cell] = LevelItem.SNAKE_BODY;
+        }
+        expected[snake.getHeadCell()] = LevelItem.SNAKE_HEAD;
+
+        FreeCellSet free = level.getFreeCells();
+        // A random rank must give the empty cell with that many empty cells before it
+        int rank = free.isEmpty() ? -1 : random.nextInt(free.size());
+
+        boolean ended = level.isGameEnded();
+        int empty = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int row = cell / level.cols;
+            int col = cell % level.cols;
+            if (level.getItem(cell) != expected[cell]) {
+                fail(level, when, "level has " + level.getItem(cell) + " at " + col + "," + row + ", rebuild has " + expected[cell]);
+            }
+            if (frame.getItem(row, col) != expected[cell]) {
+                fail(level, when, "frame has " + frame.getItem(row, col) + " at " + col + "," + row + ", rebuild has " + expected[cell]);
+            }
+            boolean isEmpty = expected[cell] == LevelItem.EMPTY;
+            if (!ended && free.contains(cell) != isEmpty) {
+                fail(level, when, "free-cell index " + (isEmpty ? "misses" : "holds") + " " + expected[cell] + " at " + col + "," + row);
+            }
+            if (snake.occupies(cell) != (expected[cell] == LevelItem.SNAKE_BODY || expected[cell] == LevelItem.SNAKE_HEAD)) {
+                fail(level, when, "snake occupancy differs at " + col + "," + row);
+            }
+            if (!ended && isEmpty && empty == rank && free.get(rank) != cell) {
+                fail(level, when, "free-cell index gives cell " + free.get(rank) + " for rank " + rank + ", rebuild has " + cell);
+            }
+            if (isEmpty) empty++;
+        }
+        if (!ended && empty != free.size()) fail(level, when, "free-cell index has " + free.size() + " cells, rebuild has " + empty);
+
+        if (frame.getScore() != level.getScore()
+                || frame.getHeadX() != snake.getHeadX() || frame.getHeadY() != snake.getHeadY()
+                || frame.getTailX() != snake.getSegmentX(snake.getLength() - 1)
+                || frame.getTailY() != snake.getSegmentY(snake.getLength() - 1)
+                || frame.isGameEnded() != level.isGameEnded() || frame.isGameWon() != level.isGameWon()
+                || frame.getDirection() != snake.getCurrentDirection()) {
+            fail(level, when, "frame status differs from the level");
+        }
+    }
+
+    private void fail(GameLevel level, String when, String message) {
+        System.out.println("GameLevelConsistencyCheck error: " + message + " (" + when + " of game " + games
+                + " on " + level.gameID.difficulty + " " + level.gameID.level + ", tick " + ticks + ")");
+        level.printLevel();
+        System.exit(1);
+    }
+
+    /**
+     * Runs the check from the command line.
+     *
+     * @param args optionally the number of ticks and the seed
+     */
+    public static void main(String[] args) {
+        long limit = (args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_TICKS;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1L;
+        GameLevelConsistencyCheck check = new GameLevelConsistencyCheck(seed);
+        long start = System.nanoTime();
+        check.run(limit);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d ticks in %d games (%d won) matched the rebuild in %.1f s%n",
+                check.ticks, check.games, check.won, seconds);
+    }
+}